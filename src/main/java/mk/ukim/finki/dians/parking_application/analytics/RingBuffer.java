@@ -0,0 +1,108 @@
+package mk.ukim.finki.dians.parking_application.analytics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue with many producers and one consumer.
+ * <p>
+ * Every slot has a sequence number which tells whose turn it is: a slot
+ * with sequence n is free for the producer of the n-th element, the producer
+ * claims the position n with a compare-and-set of the tail, writes the element
+ * and publishes it by setting the sequence to n + 1. The consumer takes the
+ * element when the sequence is n + 1 and frees the slot for the producer of
+ * the element n + capacity. A producer never waits: if the queue is full
+ * offer() returns false and the element is dropped.
+ *
+ * @param <E> type of the elements
+ */
+public class RingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // position of the next element to take, used only by the consumer
+    private long head;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Capacity %d is out of range", capacity));
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int slot = 0; slot < size; slot++) {
+            sequences.set(slot, slot);
+        }
+    }
+
+    /**
+     * Adds an element, safe to call from any thread
+     * @param element the element, not null
+     * @return false if the queue is full and the element was dropped
+     */
+    public boolean offer(E element) {
+
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence < position) {
+                // the consumer has not taken the element of the previous round yet
+                return false;
+            }
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+            // another producer claimed the position first
+        }
+        elements[slot] = element;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes the published elements in the order they were claimed,
+     * must be called from one thread only
+     * @param action what is done with every element
+     * @param max maximum number of elements to take
+     * @return number of elements taken
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> action, int max) {
+
+        int taken = 0;
+        while (taken < max) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                // empty, or the next producer has claimed the slot but not published it yet
+                break;
+            }
+            E element = (E) elements[slot];
+            elements[slot] = null;
+            sequences.lazySet(slot, head + elements.length);
+            head++;
+            taken++;
+            action.accept(element);
+        }
+        return taken;
+    }
+
+    /**
+     * @return number of slots
+     */
+    public int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,227 @@
+package mk.ukim.finki.dians.parking_application.analytics;
+
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Counts the searches by city and address without slowing them down.
+ * <p>
+ * A search only puts an event into a RingBuffer, which never blocks and
+ * drops the event if it is full. One background thread takes the events and
+ * counts them per (window, city, address, outcome), where a window is a period
+ * of "parking.analytics.window". When a window is over its counts are moved
+ * to the rows waiting for the next flush, which writes them in JDBC batches,
+ * so the database sees one row per distinct search and window instead of
+ * one insert per search.
+ * <p>
+ * The city and address are kept as they were typed (only trimmed),
+ * so they can be searched again exactly as the users did.
+ */
+@Component
+public class SearchAnalytics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchAnalytics.class);
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int DRAIN_LIMIT = 4096;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final String INSERT_STAT =
+            "insert into search_stats (window_start, city, address, outcome, searches) values (?, ?, ?, ?, ?)";
+
+    private final RingBuffer<SearchEvent> buffer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long windowMillis;
+    private final LongAdder dropped = new LongAdder();
+
+    // used only by the consumer thread
+    private final Map<SearchKey, long[]> counts = new HashMap<>();
+    private long openWindowStart = Long.MIN_VALUE;
+
+    private final Queue<Object[]> closed = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private Thread consumer;
+
+    public SearchAnalytics(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${parking.analytics.buffer-size:65536}") int bufferSize,
+                           @Value("${parking.analytics.window:1m}") Duration window) {
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowMillis = window.toMillis();
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        consumer = new Thread(this::consume, "search-analytics");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Counts the remaining events, closes the open windows and writes them
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+        flush();
+    }
+
+    /**
+     * Records a search, safe to call from any thread and never blocks
+     * @param city the city which was searched for, may be empty
+     * @param address the address which was searched for, may be empty
+     * @param outcome whether any parking was found
+     */
+    public void record(String city, String address, SearchOutcome outcome) {
+        SearchEvent event = new SearchEvent(text(city), text(address), outcome, System.currentTimeMillis());
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes the counts of the closed windows.
+     * If a batch fails it is kept for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${parking.analytics.flush-interval:60000}")
+    public synchronized void flush() {
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row = closed.poll(); row != null; row = closed.poll()) {
+            rows.add(row);
+        }
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + BATCH_SIZE, rows.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.batchUpdate(INSERT_STAT, chunk));
+            } catch (RuntimeException exception) {
+                LOGGER.warn("Writing {} search counts failed, they are kept for the next flush", chunk.size(), exception);
+                closed.addAll(chunk);
+            }
+        }
+    }
+
+    /**
+     * @return number of searches which were not counted because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void consume() {
+        while (running) {
+            int taken = buffer.drain(this::count, DRAIN_LIMIT);
+            long windowStart = windowStart(System.currentTimeMillis());
+            if (windowStart > openWindowStart) {
+                closeWindowsBefore(windowStart);
+                openWindowStart = windowStart;
+            }
+            if (taken == 0) {
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        }
+        buffer.drain(this::count, Integer.MAX_VALUE);
+        closeWindowsBefore(Long.MAX_VALUE);
+    }
+
+    private void count(SearchEvent event) {
+        SearchKey key = new SearchKey(windowStart(event.timeMillis), event.city, event.address, event.outcome);
+        counts.computeIfAbsent(key, ignored -> new long[1])[0]++;
+    }
+
+    private void closeWindowsBefore(long windowStart) {
+        Iterator<Map.Entry<SearchKey, long[]>> entries = counts.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<SearchKey, long[]> entry = entries.next();
+            SearchKey key = entry.getKey();
+            if (key.windowStart < windowStart) {
+                closed.add(new Object[]{new Timestamp(key.windowStart), key.city, key.address, key.outcome.name(), entry.getValue()[0]});
+                entries.remove();
+            }
+        }
+    }
+
+    private long windowStart(long timeMillis) {
+        return timeMillis - Math.floorMod(timeMillis, windowMillis);
+    }
+
+    private static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        String trimmed = value.trim();
+        return trimmed.length() > MAX_TEXT_LENGTH ? trimmed.substring(0, MAX_TEXT_LENGTH) : trimmed;
+    }
+
+    private static class SearchEvent {
+        private final String city;
+        private final String address;
+        private final SearchOutcome outcome;
+        private final long timeMillis;
+
+        private SearchEvent(String city, String address, SearchOutcome outcome, long timeMillis) {
+            this.city = city;
+            this.address = address;
+            this.outcome = outcome;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    private static class SearchKey {
+        private final long windowStart;
+        private final String city;
+        private final String address;
+        private final SearchOutcome outcome;
+
+        private SearchKey(long windowStart, String city, String address, SearchOutcome outcome) {
+            this.windowStart = windowStart;
+            this.city = city;
+            this.address = address;
+            this.outcome = outcome;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SearchKey)) {
+                return false;
+            }
+            SearchKey key = (SearchKey) other;
+            return windowStart == key.windowStart && city.equals(key.city)
+                    && address.equals(key.address) && outcome == key.outcome;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(windowStart, city, address, outcome);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package mk.ukim.finki.dians.parking_application.cache;
+
+import mk.ukim.finki.dians.parking_application.catalogue.ParkingCatalogue;
+import mk.ukim.finki.dians.parking_application.geo.GeoHash;
+import mk.ukim.finki.dians.parking_application.geo.GeoUtils;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the candidate parkings for the current-location search,
+ * keyed by the geohash cell of the user's coordinates.
+ * <p>
+ * The candidates of a cell are all of the parkings which can be within the
+ * search radius of any point in the cell (radius + half of the cell diagonal
+ * around the cell center), so users in the same cell share one entry and only
+ * re-rank the short cached list by their exact distance.
+ * A cell is loaded from the in-memory ParkingCatalogue, so a miss costs one
+ * search of the shards around the cell instead of a database query, and a hit
+ * does not touch the shards (and their locks) at all.
+ * A change of a parking evicts only the cells which contained it
+ * or which are close enough to its new location. The cache is notified
+ * after the catalogue, so a cell loaded again already sees the change.
+ * Concurrent misses of the same cell share one load.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class NearbyParkingCache implements ParkingChangeListener {
+
+    private final ParkingCatalogue parkingCatalogue;
+    private final ParkingRepository parkingRepository;
+    private final int precision;
+    private final double radiusKm;
+    private final Map<String, Cell> cells;
+    private final AtomicLong generation = new AtomicLong();
+    private final SingleFlight<String, Cell> loads = new SingleFlight<>();
+
+    public NearbyParkingCache(ParkingCatalogue parkingCatalogue,
+                              ParkingRepository parkingRepository,
+                              @Value("${parking.nearby.geohash-precision:6}") int precision,
+                              @Value("${parking.nearby.radius-km:3}") double radiusKm,
+                              @Value("${parking.nearby.max-cells:10000}") int maxCells) {
+        this.parkingCatalogue = parkingCatalogue;
+        this.parkingRepository = parkingRepository;
+        this.precision = precision;
+        this.radiusKm = radiusKm;
+        this.cells = Collections.synchronizedMap(new LinkedHashMap<String, Cell>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cell> eldest) {
+                return size() > maxCells;
+            }
+        });
+    }
+
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    /**
+     * Returns the parkings which may be within the search radius of the coordinates.
+     * The result still has to be filtered and sorted by the exact distance.
+     * @param latitude north-south coordinate of the user's location
+     * @param longitude east-west coordinate of the user's location
+     * @return unmodifiable list of candidate parkings
+     */
+    public List<ParkingSummary> candidates(double latitude, double longitude) {
+        String hash = GeoHash.encode(latitude, longitude, precision);
+        Cell cell = cells.get(hash);
+        if (cell == null) {
+            // users in the same cell arriving together wait for one load instead of each running it
+            cell = loads.execute(hash, () -> {
+                long generationBefore = generation.get();
+                Cell loaded = load(hash);
+                // a cell loaded while changes were being applied may already be stale
+                if (generation.get() == generationBefore) {
+                    cells.put(hash, loaded);
+                }
+                return loaded;
+            });
+        }
+        return cell.parkings;
+    }
+
+    /**
+     * Loads the candidates of a cell from the catalogue
+     * @param hash geohash of the cell
+     * @return the loaded cell
+     */
+    private Cell load(String hash) {
+        double[] bounds = GeoHash.bounds(hash);
+        double centerLatitude = (bounds[0] + bounds[2]) / 2;
+        double centerLongitude = (bounds[1] + bounds[3]) / 2;
+        double reachKm = radiusKm + GeoUtils.haversineDistance(centerLatitude, centerLongitude, bounds[2], bounds[3]);
+
+        List<ParkingSummary> parkings = parkingCatalogue.nearby(centerLatitude, centerLongitude, reachKm);
+        return new Cell(centerLatitude, centerLongitude, reachKm, Collections.unmodifiableList(parkings));
+    }
+
+    /**
+     * Evicts the cells affected by the changes: cells which contain a changed
+     * or deleted parking, and cells whose reach covers a created or moved parking.
+     * @param changes the new entries of the change log
+     */
+    @Override
+    public void onParkingChanges(List<ParkingChange> changes) {
+
+        Set<Long> changedIds = new HashSet<>();
+        for (ParkingChange change : changes) {
+            changedIds.add(change.getParkingId());
+        }
+
+        Set<Long> existingIds = new HashSet<>();
+        for (ParkingChange change : changes) {
+            if (change.getType() != ChangeType.DELETED) {
+                existingIds.add(change.getParkingId());
+            }
+        }
+        List<double[]> newLocations = new ArrayList<>();
+        if (!existingIds.isEmpty()) {
+            for (ParkingSummary parking : parkingRepository.findSummariesByIdIn(existingIds)) {
+                if (parking.getLatitude() != null && parking.getLongitude() != null) {
+                    newLocations.add(new double[]{parking.getLatitude(), parking.getLongitude()});
+                }
+            }
+        }
+
+        generation.incrementAndGet();
+        synchronized (cells) {
+            Iterator<Cell> iterator = cells.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isAffectedBy(changedIds, newLocations)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static class Cell {
+        private final double centerLatitude;
+        private final double centerLongitude;
+        private final double reachKm;
+        private final List<ParkingSummary> parkings;
+
+        private Cell(double centerLatitude, double centerLongitude, double reachKm, List<ParkingSummary> parkings) {
+            this.centerLatitude = centerLatitude;
+            this.centerLongitude = centerLongitude;
+            this.reachKm = reachKm;
+            this.parkings = parkings;
+        }
+
+        private boolean isAffectedBy(Set<Long> changedIds, List<double[]> newLocations) {
+            for (ParkingSummary parking : parkings) {
+                if (changedIds.contains(parking.getId())) {
+                    return true;
+                }
+            }
+            for (double[] location : newLocations) {
+                if (GeoUtils.haversineDistance(centerLatitude, centerLongitude, location[0], location[1]) <= reachKm) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
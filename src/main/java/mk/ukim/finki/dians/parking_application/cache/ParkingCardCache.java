@@ -0,0 +1,182 @@
+package mk.ukim.finki.dians.parking_application.cache;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the rendered HTML of the parking cards (fragments/parking-card),
+ * so the result pages concatenate cached strings instead of evaluating
+ * the card template (with its inline SVG icons) for every parking on every request.
+ * <p>
+ * A card is kept per parking, variant (with or without the admin buttons)
+ * and locale, since the score of the users' ratings is formatted for the locale.
+ * It is reused only while the parking is still equal to the one it was rendered
+ * from, and it is evicted when the change log reports a change of the parking
+ * (an edit, a delete or a new rating), so a stale card is never shown.
+ * The cards contain nothing specific to the user or the session: the admin
+ * buttons are a separate variant, CSRF tokens are disabled and the links are
+ * rendered without URL rewriting.
+ */
+@Component
+public class ParkingCardCache implements ParkingChangeListener {
+
+    private static final String TEMPLATE = "fragments/parking-card";
+    private static final Set<String> FRAGMENT = Collections.singleton("card");
+
+    private final ITemplateEngine templateEngine;
+    private final Map<CardKey, Card> cards;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ParkingCardCache(ITemplateEngine templateEngine,
+                            @Value("${parking.cards.max-entries:5000}") int maxEntries) {
+        this.templateEngine = templateEngine;
+        this.cards = Collections.synchronizedMap(new LinkedHashMap<CardKey, Card>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CardKey, Card> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Returns the card of the parking, rendered only if it is not cached
+     * or the parking has changed since. Must be called while a request is handled,
+     * it is called from the templates as ${@parkingCardCache.render(result, manage)}.
+     * @param parking the parking shown on the card
+     * @param manage whether the edit and delete buttons are shown to the admin
+     * @return the HTML of the card
+     */
+    public String render(ParkingSummary parking, boolean manage) {
+
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        HttpServletRequest request = attributes.getRequest();
+        boolean adminButtons = manage && request.isUserInRole("ADMIN");
+        Locale locale = LocaleContextHolder.getLocale();
+        CardKey key = new CardKey(parking.getId(), adminButtons, locale);
+
+        Card card = cards.get(key);
+        if (card != null && card.parking.equals(parking)) {
+            return card.html;
+        }
+
+        long generationBefore = generation.get();
+        WebContext context = new WebContext(request, new NotRewritingResponse(attributes.getResponse()),
+                request.getServletContext(), locale);
+        context.setVariable("result", parking);
+        context.setVariable("manage", manage);
+        String html = templateEngine.process(TEMPLATE, FRAGMENT, context);
+
+        // a card rendered while changes were being applied may already be stale
+        if (generation.get() == generationBefore) {
+            cards.put(key, new Card(parking, html));
+        }
+        return html;
+    }
+
+    /**
+     * Evicts the cards of the changed parkings
+     * @param changes the new entries of the change log
+     */
+    @Override
+    public void onParkingChanges(List<ParkingChange> changes) {
+
+        Set<Long> changedIds = new HashSet<>();
+        for (ParkingChange change : changes) {
+            changedIds.add(change.getParkingId());
+        }
+
+        generation.incrementAndGet();
+        synchronized (cards) {
+            Iterator<CardKey> iterator = cards.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (changedIds.contains(iterator.next().parkingId)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of cached cards
+     */
+    public int size() {
+        return cards.size();
+    }
+
+    private static class CardKey {
+        private final long parkingId;
+        private final boolean adminButtons;
+        private final Locale locale;
+
+        private CardKey(long parkingId, boolean adminButtons, Locale locale) {
+            this.parkingId = parkingId;
+            this.adminButtons = adminButtons;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CardKey)) {
+                return false;
+            }
+            CardKey key = (CardKey) other;
+            return parkingId == key.parkingId && adminButtons == key.adminButtons && locale.equals(key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Long.hashCode(parkingId) * 2 + (adminButtons ? 1 : 0)) * 31 + locale.hashCode();
+        }
+    }
+
+    private static class Card {
+        private final ParkingSummary parking;
+        private final String html;
+
+        private Card(ParkingSummary parking, String html) {
+            this.parking = parking;
+            this.html = html;
+        }
+    }
+
+    /**
+     * Keeps the session id out of the links of a cached card
+     */
+    private static class NotRewritingResponse extends HttpServletResponseWrapper {
+
+        private NotRewritingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            return url;
+        }
+    }
+}
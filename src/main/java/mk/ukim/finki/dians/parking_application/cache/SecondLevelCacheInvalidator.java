@@ -0,0 +1,38 @@
+package mk.ukim.finki.dians.parking_application.cache;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * Keeps the Hibernate second-level and query cache of this node coherent
+ * with the changes made on other nodes. Changes made on this node are already
+ * handled by Hibernate itself, evicting them again is harmless.
+ */
+@Component
+public class SecondLevelCacheInvalidator implements ParkingChangeListener {
+
+    private final Cache cache;
+
+    public SecondLevelCacheInvalidator(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * Evicts the changed parkings and all of the cached query results
+     * @param changes the new entries of the change log
+     */
+    @Override
+    public void onParkingChanges(List<ParkingChange> changes) {
+        for (ParkingChange change : changes) {
+            cache.evictEntityData(Parking.class, change.getParkingId());
+        }
+        cache.evictQueryRegions();
+    }
+}
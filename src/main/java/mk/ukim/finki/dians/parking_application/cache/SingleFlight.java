@@ -0,0 +1,72 @@
+package mk.ukim.finki.dians.parking_application.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical computations: the first caller for a key
+ * computes the value, every caller arriving while it is still running waits
+ * for it and receives the same result (or the same exception).
+ * Nothing is cached once the computation has finished.
+ * @param <K> type of the key identifying identical computations
+ * @param <V> type of the computed value
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Runs the computation, or joins the one already running for the same key
+     * @param key identifies identical computations
+     * @param computation the computation, run by at most one caller at a time per key
+     * @return the computed value
+     */
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) exception.getCause();
+                }
+                throw exception;
+            }
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = computation.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error exception) {
+            future.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return number of computations which were actually run
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * @return number of calls which received the result of another caller's computation
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,201 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * The parkings of one city in the ParkingCatalogue, with their own column store,
+ * grid spatial index, text index of the addresses and lock. Queries and changes
+ * in one city never wait for another city.
+ * The bounding box of the shard only grows (until the next rebuild), so it may be
+ * larger than the parkings in it, but never smaller, and the box queries skip
+ * the shards which it does not intersect.
+ */
+class CatalogueShard {
+
+    private final String city;
+    private final int number;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ParkingColumns columns = new ParkingColumns();
+    private final GridIndex grid;
+    private final TrigramIndex addresses = new TrigramIndex();
+
+    private volatile double minLatitude = Double.POSITIVE_INFINITY;
+    private volatile double minLongitude = Double.POSITIVE_INFINITY;
+    private volatile double maxLatitude = Double.NEGATIVE_INFINITY;
+    private volatile double maxLongitude = Double.NEGATIVE_INFINITY;
+
+    CatalogueShard(String city, int number, double cellSize) {
+        this.city = city;
+        this.number = number;
+        this.grid = new GridIndex(cellSize);
+    }
+
+    /**
+     * @return the key of the shard for the city of a parking
+     */
+    static String keyOf(String city) {
+        return city == null ? "" : city.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the upper-cased city of the parkings in the shard
+     */
+    String city() {
+        return city;
+    }
+
+    /**
+     * @return the number of the shard, in the order the shards were created
+     */
+    int number() {
+        return number;
+    }
+
+    /**
+     * Replaces all the parkings of the shard
+     */
+    void rebuild(Collection<ParkingSummary> parkings) {
+        lock.writeLock().lock();
+        try {
+            columns.clear();
+            grid.clear();
+            addresses.clear();
+            minLatitude = Double.POSITIVE_INFINITY;
+            minLongitude = Double.POSITIVE_INFINITY;
+            maxLatitude = Double.NEGATIVE_INFINITY;
+            maxLongitude = Double.NEGATIVE_INFINITY;
+            for (ParkingSummary parking : parkings) {
+                add(parking);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the parkings with the ids and then adds (or replaces) the parkings
+     * @param removedIds ids of the parkings which are no longer in this city, may not be in the shard
+     * @param parkings the current state of the changed parkings of this city
+     */
+    void update(Collection<Long> removedIds, Collection<ParkingSummary> parkings) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : removedIds) {
+                remove(id);
+            }
+            for (ParkingSummary parking : parkings) {
+                remove(parking.getId());
+                add(parking);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the task under the read lock, the slots and the columns
+     * can be used only inside of it
+     */
+    <T> T read(Function<CatalogueShard, T> task) {
+        lock.readLock().lock();
+        try {
+            return task.apply(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the shard certainly has no parking inside the box
+     */
+    boolean intersects(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        return this.minLatitude <= maxLatitude && this.maxLatitude >= minLatitude
+                && this.minLongitude <= maxLongitude && this.maxLongitude >= minLongitude;
+    }
+
+    /**
+     * Visits the slots of the parkings inside the box, must be called inside read()
+     */
+    void forEachSlotInBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                          IntConsumer action) {
+        if (!intersects(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+            return;
+        }
+        grid.forEachCandidate(minLatitude, minLongitude, maxLatitude, maxLongitude, slot -> {
+            double latitude = columns.latitude(slot);
+            double longitude = columns.longitude(slot);
+            if (latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude && longitude <= maxLongitude) {
+                action.accept(slot);
+            }
+        });
+    }
+
+    /**
+     * Visits the slots of the parkings whose address contains the term,
+     * all of them if the term is empty, must be called inside read()
+     * @param address the upper-cased term
+     */
+    void forEachSlotWithAddress(String address, IntConsumer action) {
+        if (address.isEmpty()) {
+            columns.forEachSlot(action);
+            return;
+        }
+        IntConsumer verified = slot -> {
+            String candidate = columns.address(slot);
+            if (candidate != null && candidate.toUpperCase(Locale.ROOT).contains(address)) {
+                action.accept(slot);
+            }
+        };
+        if (!addresses.forEachCandidate(address, verified)) {
+            columns.forEachSlot(verified);
+        }
+    }
+
+    /**
+     * @return the column store, must be used inside read()
+     */
+    ParkingColumns columns() {
+        return columns;
+    }
+
+    int size() {
+        return read(shard -> columns.size());
+    }
+
+    private void add(ParkingSummary parking) {
+        int slot = columns.put(parking);
+        addresses.add(slot, normalize(parking.getAddress()));
+        if (columns.hasLocation(slot)) {
+            double latitude = columns.latitude(slot);
+            double longitude = columns.longitude(slot);
+            grid.add(slot, latitude, longitude);
+            minLatitude = Math.min(minLatitude, latitude);
+            minLongitude = Math.min(minLongitude, longitude);
+            maxLatitude = Math.max(maxLatitude, latitude);
+            maxLongitude = Math.max(maxLongitude, longitude);
+        }
+    }
+
+    private void remove(long id) {
+        int slot = columns.slotOf(id);
+        if (slot == LongIntMap.MISSING) {
+            return;
+        }
+        addresses.remove(slot, normalize(columns.address(slot)));
+        if (columns.hasLocation(slot)) {
+            grid.remove(slot, columns.latitude(slot), columns.longitude(slot));
+        }
+        columns.remove(id);
+    }
+
+    private static String normalize(String address) {
+        return address == null ? null : address.toUpperCase(Locale.ROOT);
+    }
+}
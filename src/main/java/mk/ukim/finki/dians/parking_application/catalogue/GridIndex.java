@@ -0,0 +1,94 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial index of parkings: a uniform grid of cells of a fixed size in degrees,
+ * only the occupied cells are stored. A cell keeps the int slots of its parkings
+ * (their positions in a column store or a list), not the parkings themselves.
+ * A box query visits only the cells overlapping the box, so its cost depends on
+ * the size of the box and the number of parkings in it, not on the size of the catalogue.
+ * Not thread-safe, the owner guards it with its lock.
+ */
+public class GridIndex {
+
+    private final double cellSize;
+    private final Map<Long, IntBag> cells = new HashMap<>();
+
+    public GridIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void add(int slot, double latitude, double longitude) {
+        cells.computeIfAbsent(cellOf(latitude, longitude), key -> new IntBag()).add(slot);
+    }
+
+    public void remove(int slot, double latitude, double longitude) {
+        long key = cellOf(latitude, longitude);
+        IntBag cell = cells.get(key);
+        if (cell != null && cell.remove(slot) && cell.size() == 0) {
+            cells.remove(key);
+        }
+    }
+
+    /**
+     * Visits the slots in every cell overlapping the box. The cells stick out
+     * of the box, so the caller still has to check the exact coordinates.
+     * @param minLatitude south border
+     * @param minLongitude west border
+     * @param maxLatitude north border
+     * @param maxLongitude east border
+     * @param action called for every slot in the overlapping cells
+     */
+    public void forEachCandidate(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                 IntConsumer action) {
+
+        long minRow = index(minLatitude);
+        long maxRow = index(maxLatitude);
+        long minColumn = index(minLongitude);
+        long maxColumn = index(maxLongitude);
+
+        // a box covering more cells than are occupied is answered by visiting the occupied cells
+        if ((maxRow - minRow + 1) * (maxColumn - minColumn + 1) > cells.size()) {
+            for (Map.Entry<Long, IntBag> cell : cells.entrySet()) {
+                long row = cell.getKey() >> 32;
+                long column = (int) cell.getKey().longValue();
+                if (row >= minRow && row <= maxRow && column >= minColumn && column <= maxColumn) {
+                    cell.getValue().forEach(action);
+                }
+            }
+            return;
+        }
+
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long column = minColumn; column <= maxColumn; column++) {
+                IntBag cell = cells.get(key(row, column));
+                if (cell != null) {
+                    cell.forEach(action);
+                }
+            }
+        }
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public void clear() {
+        cells.clear();
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return key(index(latitude), index(longitude));
+    }
+
+    private long index(double degrees) {
+        return (long) Math.floor(degrees / cellSize);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,42 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Unordered growable set of int slots in a primitive array,
+ * used for the cells of the grid and the postings of the text index.
+ * Not thread-safe.
+ */
+class IntBag {
+
+    private int[] slots = new int[4];
+    private int size;
+
+    void add(int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        slots[size++] = slot;
+    }
+
+    boolean remove(int slot) {
+        for (int i = 0; i < size; i++) {
+            if (slots[i] == slot) {
+                slots[i] = slots[--size];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(slots[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,490 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import mk.ukim.finki.dians.parking_application.geo.GeoUtils;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingViewport;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory copy of the parking catalogue, for the map and search queries
+ * which would otherwise need the whole table.
+ * The parkings are partitioned by city into independent shards (CatalogueShard),
+ * every shard has its own column store, grid spatial index, text index of the
+ * addresses and lock. A query for a city touches only the shards of that city,
+ * a query by location only the shards whose bounding box it intersects, and
+ * the other queries fan out over the shards in parallel on a dedicated fork-join
+ * pool, so they use all the cores. A change in one city locks only its shard.
+ * It is loaded once (when the application is ready, or on the first query)
+ * and then follows the parking change log: only the changed parkings are
+ * loaded again and moved in their shards. A parking which moves to another city
+ * is removed from the old shard before it is added to the new one.
+ * It is the first listener of the change log, the caches built on top
+ * of it (NearbyParkingCache) are notified after it is updated.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ParkingCatalogue implements ParkingChangeListener {
+
+    private final ParkingRepository parkingRepository;
+    private final double cellSize;
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<String, CatalogueShard> shards = new ConcurrentHashMap<>();
+    // the load and the changes are applied one at a time, the queries do not take this lock
+    private final Lock changeLock = new ReentrantLock();
+    // which shard every parking is in, only used under the change lock
+    private final LongIntMap shardOf = new LongIntMap();
+    private final List<CatalogueShard> numberedShards = new ArrayList<>();
+    private volatile boolean loaded;
+
+    public ParkingCatalogue(ParkingRepository parkingRepository,
+                            @Value("${parking.catalogue.cell-size-degrees:0.01}") double cellSize,
+                            @Value("${parking.catalogue.parallelism:0}") int parallelism) {
+        this.parkingRepository = parkingRepository;
+        this.cellSize = cellSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads the catalogue after the application has started
+     * (and after the local data has been seeded),
+     * the shards of the cities are built in parallel
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void load() {
+        if (loaded) {
+            return;
+        }
+        changeLock.lock();
+        try {
+            if (!loaded) {
+                Map<CatalogueShard, List<ParkingSummary>> parkingsByShard = new LinkedHashMap<>();
+                for (ParkingSummary parking : parkingRepository.findAllSummaries()) {
+                    CatalogueShard shard = shardFor(parking.getCity());
+                    shardOf.put(parking.getId(), shard.number());
+                    parkingsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(parking);
+                }
+                List<ForkJoinTask<?>> builds = new ArrayList<>();
+                for (Map.Entry<CatalogueShard, List<ParkingSummary>> entry : parkingsByShard.entrySet()) {
+                    builds.add(pool.submit(() -> entry.getKey().rebuild(entry.getValue())));
+                }
+                builds.forEach(ForkJoinTask::join);
+                loaded = true;
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Visits every parking inside the box, one shard at a time under its read lock,
+     * so the action must not block
+     * @param minLatitude south border
+     * @param minLongitude west border
+     * @param maxLatitude north border
+     * @param maxLongitude east border
+     * @param action called for every parking in the box
+     */
+    public void forEachInBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                             Consumer<ParkingSummary> action) {
+        load();
+        for (CatalogueShard shard : shards.values()) {
+            if (shard.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                shard.read(reading -> {
+                    reading.forEachSlotInBox(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                            slot -> action.accept(reading.columns().summary(slot)));
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Finds the parkings inside the viewport in one pass over the index of every
+     * shard the viewport intersects, the shards are searched in parallel.
+     * If there are more than the limit, the viewport is divided into a grid
+     * of at most limit parts and only the best parking of every part is kept,
+     * so dense areas are thinned and sparse areas keep all of their parkings.
+     * The best parking of a part is the one with the highest users' score,
+     * then with the most ratings.
+     * @param minLatitude south border
+     * @param minLongitude west border
+     * @param maxLatitude north border
+     * @param maxLongitude east border
+     * @param limit maximum number of returned parkings
+     * @return the parkings inside the viewport, thinned if there are too many
+     */
+    public ParkingViewport viewport(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, int limit) {
+
+        int parts = Math.max(1, (int) Math.sqrt(limit));
+        double partHeight = Math.max(maxLatitude - minLatitude, Double.MIN_VALUE) / parts;
+        double partWidth = Math.max(maxLongitude - minLongitude, Double.MIN_VALUE) / parts;
+
+        List<ViewportPart> shardParts = inShards(
+                shard -> shard.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude),
+                shard -> {
+                    int[] first = new int[limit];
+                    int[] best = new int[parts * parts];
+                    Arrays.fill(best, -1);
+                    int[] total = new int[1];
+                    ParkingColumns columns = shard.columns();
+
+                    shard.forEachSlotInBox(minLatitude, minLongitude, maxLatitude, maxLongitude, slot -> {
+                        if (total[0] < limit) {
+                            first[total[0]] = slot;
+                        }
+                        total[0]++;
+                        int part = part(columns.latitude(slot), columns.longitude(slot),
+                                minLatitude, minLongitude, partHeight, partWidth, parts);
+                        if (best[part] < 0 || better(columns.ratingScore(slot), columns.ratingCount(slot),
+                                columns.ratingScore(best[part]), columns.ratingCount(best[part]))) {
+                            best[part] = slot;
+                        }
+                    });
+
+                    // a shard within the limit returns all of its parkings, a larger one only the best of every part
+                    List<ParkingSummary> parkings = new ArrayList<>();
+                    if (total[0] <= limit) {
+                        for (int i = 0; i < total[0]; i++) {
+                            parkings.add(columns.summary(first[i]));
+                        }
+                    } else {
+                        for (int slot : best) {
+                            if (slot >= 0) {
+                                parkings.add(columns.summary(slot));
+                            }
+                        }
+                    }
+                    return new ViewportPart(total[0], parkings);
+                });
+
+        int total = 0;
+        for (ViewportPart shardPart : shardParts) {
+            total += shardPart.total;
+        }
+        List<ParkingSummary> result = new ArrayList<>();
+        if (total <= limit) {
+            shardParts.forEach(shardPart -> result.addAll(shardPart.parkings));
+            return new ParkingViewport(total, false, result);
+        }
+
+        ParkingSummary[] best = new ParkingSummary[parts * parts];
+        for (ViewportPart shardPart : shardParts) {
+            for (ParkingSummary parking : shardPart.parkings) {
+                int part = part(parking.getLatitude(), parking.getLongitude(),
+                        minLatitude, minLongitude, partHeight, partWidth, parts);
+                if (best[part] == null || better(score(parking), count(parking), score(best[part]), count(best[part]))) {
+                    best[part] = parking;
+                }
+            }
+        }
+        for (ParkingSummary parking : best) {
+            if (parking != null) {
+                result.add(parking);
+            }
+        }
+        return new ParkingViewport(total, true, result);
+    }
+
+    /**
+     * Finds the parkings around a location, only in the shards
+     * whose bounding box the circle intersects
+     * @param latitude north-south coordinate of the center
+     * @param longitude east-west coordinate of the center
+     * @param radiusKm radius of the circle
+     * @return the parkings less than radiusKm away, in no particular order
+     */
+    public List<ParkingSummary> nearby(double latitude, double longitude, double radiusKm) {
+
+        double latitudeDelta = GeoUtils.latitudeDelta(radiusKm);
+        double longitudeDelta = GeoUtils.longitudeDelta(radiusKm, Math.min(90, Math.abs(latitude) + latitudeDelta));
+        double minLatitude = latitude - latitudeDelta;
+        double maxLatitude = latitude + latitudeDelta;
+        double minLongitude = longitude - longitudeDelta;
+        double maxLongitude = longitude + longitudeDelta;
+
+        return flatten(inShards(
+                shard -> shard.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude),
+                shard -> {
+                    List<ParkingSummary> found = new ArrayList<>();
+                    ParkingColumns columns = shard.columns();
+                    shard.forEachSlotInBox(minLatitude, minLongitude, maxLatitude, maxLongitude, slot -> {
+                        if (GeoUtils.haversineDistance(latitude, longitude, columns.latitude(slot), columns.longitude(slot)) < radiusKm) {
+                            found.add(columns.summary(slot));
+                        }
+                    });
+                    return found;
+                }));
+    }
+
+    /**
+     * Finds the parking closest to a location. The search starts with a box
+     * of about one grid cell around the location and doubles it until a parking
+     * is found inside the circle the box encloses, every parking outside
+     * of the box is farther than that, so only a few cells are read.
+     * @param latitude north-south coordinate of the location
+     * @param longitude east-west coordinate of the location
+     * @param maxKm no parking is returned if the closest one is farther
+     * @return the closest parking, if one is at most maxKm away
+     */
+    public Optional<ParkingSummary> nearest(double latitude, double longitude, double maxKm) {
+
+        load();
+        double radiusKm = Math.min(maxKm, cellSize * GeoUtils.KM_PER_DEGREE_LATITUDE);
+        while (true) {
+            double latitudeDelta = GeoUtils.latitudeDelta(radiusKm);
+            double longitudeDelta = GeoUtils.longitudeDelta(radiusKm, Math.min(90, Math.abs(latitude) + latitudeDelta));
+            double minLatitude = latitude - latitudeDelta;
+            double maxLatitude = latitude + latitudeDelta;
+            double minLongitude = longitude - longitudeDelta;
+            double maxLongitude = longitude + longitudeDelta;
+
+            ParkingSummary closest = null;
+            double closestKm = Double.MAX_VALUE;
+            for (CatalogueShard shard : shards.values()) {
+                if (!shard.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                    continue;
+                }
+                double[] shardClosestKm = {closestKm};
+                ParkingSummary shardClosest = shard.read(reading -> {
+                    ParkingColumns columns = reading.columns();
+                    int[] slot = {-1};
+                    reading.forEachSlotInBox(minLatitude, minLongitude, maxLatitude, maxLongitude, candidate -> {
+                        double km = GeoUtils.haversineDistance(latitude, longitude, columns.latitude(candidate), columns.longitude(candidate));
+                        if (km < shardClosestKm[0]) {
+                            shardClosestKm[0] = km;
+                            slot[0] = candidate;
+                        }
+                    });
+                    return slot[0] < 0 ? null : columns.summary(slot[0]);
+                });
+                if (shardClosest != null) {
+                    closest = shardClosest;
+                    closestKm = shardClosestKm[0];
+                }
+            }
+
+            if (closest != null && closestKm <= radiusKm) {
+                return Optional.of(closest);
+            }
+            if (radiusKm >= maxKm) {
+                return Optional.empty();
+            }
+            radiusKm = Math.min(maxKm, radiusKm * 2);
+        }
+    }
+
+    /**
+     * Finds the parkings whose city and address contain the terms, ignoring the case,
+     * the same parkings as the like '%term%' queries of the ParkingRepository.
+     * With a city only the shards of the matching cities are searched,
+     * without it all the shards are searched in parallel.
+     * @param city part of the city, may be empty
+     * @param address part of the address, may be empty
+     * @return the matching parkings in no particular order, none if both terms are empty
+     */
+    public List<ParkingSummary> search(String city, String address) {
+
+        String cityTerm = city == null ? "" : city.toUpperCase(Locale.ROOT);
+        String addressTerm = address == null ? "" : address.toUpperCase(Locale.ROOT);
+        if (cityTerm.isEmpty() && addressTerm.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return flatten(inShards(
+                shard -> shard.city().contains(cityTerm),
+                shard -> {
+                    List<ParkingSummary> found = new ArrayList<>();
+                    shard.forEachSlotWithAddress(addressTerm, slot -> found.add(shard.columns().summary(slot)));
+                    return found;
+                }));
+    }
+
+    /**
+     * @return number of parkings in the catalogue
+     */
+    public int size() {
+        load();
+        int size = 0;
+        for (CatalogueShard shard : shards.values()) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return number of shards (cities) in the catalogue
+     */
+    public int shardCount() {
+        load();
+        return shards.size();
+    }
+
+    /**
+     * Loads the changed parkings again and moves them in their shards,
+     * the deleted ones are removed. Only the shards of the changed parkings are locked.
+     * @param changes the new entries of the change log
+     */
+    @Override
+    public void onParkingChanges(List<ParkingChange> changes) {
+
+        Set<Long> changedIds = new HashSet<>();
+        for (ParkingChange change : changes) {
+            changedIds.add(change.getParkingId());
+        }
+        Map<Long, ParkingSummary> current = new HashMap<>();
+        for (ParkingSummary parking : parkingRepository.findSummariesByIdIn(changedIds)) {
+            current.put(parking.getId(), parking);
+        }
+
+        changeLock.lock();
+        try {
+            if (!loaded) {
+                // not loaded yet, the load reads the current state anyway
+                return;
+            }
+            Map<CatalogueShard, List<Long>> removed = new HashMap<>();
+            Map<CatalogueShard, List<ParkingSummary>> updated = new HashMap<>();
+            for (Long id : changedIds) {
+                int previous = shardOf.get(id);
+                ParkingSummary parking = current.get(id);
+                CatalogueShard shard = parking == null ? null : shardFor(parking.getCity());
+                if (previous != LongIntMap.MISSING && numberedShards.get(previous) != shard) {
+                    removed.computeIfAbsent(numberedShards.get(previous), key -> new ArrayList<>()).add(id);
+                    shardOf.remove(id);
+                }
+                if (shard != null) {
+                    updated.computeIfAbsent(shard, key -> new ArrayList<>()).add(parking);
+                    shardOf.put(id, shard.number());
+                }
+            }
+            // removed from the old shards first, so a moved parking is never found twice
+            removed.forEach((shard, ids) -> shard.update(ids, Collections.emptyList()));
+            updated.forEach((shard, parkings) -> shard.update(Collections.emptyList(), parkings));
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs the task on every selected shard under its read lock and collects
+     * the results. With more than one shard the tasks run in parallel on the
+     * fork-join pool, the calling thread takes the first shard itself.
+     * @param which selects the shards, it is checked outside of the shard's lock
+     * @param task the work on one shard, the slots must not leave it
+     * @return the results of the selected shards
+     */
+    <T> List<T> inShards(Predicate<CatalogueShard> which, Function<CatalogueShard, T> task) {
+        load();
+        List<CatalogueShard> selected = new ArrayList<>();
+        for (CatalogueShard shard : shards.values()) {
+            if (which.test(shard)) {
+                selected.add(shard);
+            }
+        }
+        if (selected.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<ForkJoinTask<T>> forked = new ArrayList<>();
+        for (CatalogueShard shard : selected.subList(1, selected.size())) {
+            forked.add(pool.submit(() -> shard.read(task)));
+        }
+        List<T> results = new ArrayList<>();
+        results.add(selected.get(0).read(task));
+        for (ForkJoinTask<T> fork : forked) {
+            results.add(fork.join());
+        }
+        return results;
+    }
+
+    /**
+     * The shard of the city, created if it is a new city, must be called under the change lock
+     */
+    private CatalogueShard shardFor(String city) {
+        return shards.computeIfAbsent(CatalogueShard.keyOf(city), key -> {
+            CatalogueShard shard = new CatalogueShard(key, numberedShards.size(), cellSize);
+            numberedShards.add(shard);
+            return shard;
+        });
+    }
+
+    private static int part(double latitude, double longitude, double minLatitude, double minLongitude,
+                            double partHeight, double partWidth, int parts) {
+        int row = Math.min(parts - 1, (int) ((latitude - minLatitude) / partHeight));
+        int column = Math.min(parts - 1, (int) ((longitude - minLongitude) / partWidth));
+        return row * parts + column;
+    }
+
+    /**
+     * Higher users' score first, then more ratings, a parking nobody has rated (NaN) is the worst
+     */
+    private static boolean better(double score, long count, double otherScore, long otherCount) {
+        if (Double.isNaN(score) || Double.isNaN(otherScore)) {
+            return !Double.isNaN(score) && Double.isNaN(otherScore);
+        }
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        return count > otherCount;
+    }
+
+    private static double score(ParkingSummary parking) {
+        return parking.getRatingScore() == null ? Double.NaN : parking.getRatingScore();
+    }
+
+    private static long count(ParkingSummary parking) {
+        return parking.getRatingCount() == null ? -1 : parking.getRatingCount();
+    }
+
+    private static <T> List<T> flatten(List<List<T>> lists) {
+        List<T> result = new ArrayList<>();
+        lists.forEach(result::addAll);
+        return result;
+    }
+
+    private static class ViewportPart {
+        private final int total;
+        private final List<ParkingSummary> parkings;
+
+        private ViewportPart(int total, List<ParkingSummary> parkings) {
+            this.total = total;
+            this.parkings = parkings;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Column store of the parking catalogue (struct of arrays): every field is
+ * a primitive array indexed by the slot of the parking, instead of one object
+ * with boxed numbers per parking. The coordinates are contiguous double arrays,
+ * so the box and distance checks scan them without following references.
+ * Cities and ratings repeat a lot and are dictionary encoded, the other
+ * strings are interned, so equal names and addresses are kept once.
+ * A missing number is stored as NaN (scores) or -1 (counts).
+ * The slots of removed parkings are reused. Not thread-safe,
+ * the CatalogueShard which owns it guards it with its lock.
+ */
+class ParkingColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final LongIntMap slots = new LongIntMap();
+    private final StringDictionary cities = new StringDictionary();
+    private final StringDictionary ratings = new StringDictionary();
+
+    private long[] ids;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] ratingScores;
+    private long[] ratingCounts;
+    private int[] cityCodes;
+    private int[] ratingCodes;
+    private String[] names;
+    private String[] addresses;
+    private String[] mapUrls;
+
+    // slots below the high water mark which are free, used as a stack
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int highWater;
+
+    ParkingColumns() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds the parking, or replaces it if it is already in the store
+     * @return the slot of the parking
+     */
+    int put(ParkingSummary parking) {
+        int slot = slots.get(parking.getId());
+        if (slot == LongIntMap.MISSING) {
+            slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot();
+            slots.put(parking.getId(), slot);
+        }
+        ids[slot] = parking.getId();
+        latitudes[slot] = parking.getLatitude() == null ? Double.NaN : parking.getLatitude();
+        longitudes[slot] = parking.getLongitude() == null ? Double.NaN : parking.getLongitude();
+        ratingScores[slot] = parking.getRatingScore() == null ? Double.NaN : parking.getRatingScore();
+        ratingCounts[slot] = parking.getRatingCount() == null ? -1 : parking.getRatingCount();
+        cityCodes[slot] = cities.encode(parking.getCity());
+        ratingCodes[slot] = ratings.encode(parking.getRating());
+        names[slot] = intern(parking.getName());
+        addresses[slot] = intern(parking.getAddress());
+        mapUrls[slot] = intern(parking.getMapUrl());
+        return slot;
+    }
+
+    /**
+     * @return the freed slot, or LongIntMap.MISSING if the parking was not in the store
+     */
+    int remove(long id) {
+        int slot = slots.remove(id);
+        if (slot != LongIntMap.MISSING) {
+            latitudes[slot] = Double.NaN;
+            longitudes[slot] = Double.NaN;
+            names[slot] = null;
+            addresses[slot] = null;
+            mapUrls[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+        return slot;
+    }
+
+    int slotOf(long id) {
+        return slots.get(id);
+    }
+
+    boolean hasLocation(int slot) {
+        return !Double.isNaN(latitudes[slot]) && !Double.isNaN(longitudes[slot]);
+    }
+
+    double latitude(int slot) {
+        return latitudes[slot];
+    }
+
+    double longitude(int slot) {
+        return longitudes[slot];
+    }
+
+    /**
+     * @return the users' score, NaN if nobody has rated the parking
+     */
+    double ratingScore(int slot) {
+        return ratingScores[slot];
+    }
+
+    /**
+     * @return the number of the users' ratings, -1 if unknown
+     */
+    long ratingCount(int slot) {
+        return ratingCounts[slot];
+    }
+
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    String address(int slot) {
+        return addresses[slot];
+    }
+
+    /**
+     * Visits the slots of all the parkings in the store
+     */
+    void forEachSlot(IntConsumer action) {
+        for (int slot = 0; slot < highWater; slot++) {
+            // a freed slot is not mapped from its last id any more
+            if (slots.get(ids[slot]) == slot) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    /**
+     * Creates the read-only view of the parking in the slot, only for the
+     * parkings which are returned, the scans work on the columns
+     */
+    ParkingSummary summary(int slot) {
+        return new ParkingSummary(ids[slot], names[slot], cities.decode(cityCodes[slot]), addresses[slot],
+                Double.isNaN(latitudes[slot]) ? null : latitudes[slot],
+                Double.isNaN(longitudes[slot]) ? null : longitudes[slot],
+                ratings.decode(ratingCodes[slot]), mapUrls[slot],
+                Double.isNaN(ratingScores[slot]) ? null : ratingScores[slot],
+                ratingCounts[slot] < 0 ? null : ratingCounts[slot]);
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    void clear() {
+        slots.clear();
+        cities.clear();
+        ratings.clear();
+        freeCount = 0;
+        highWater = 0;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private int nextSlot() {
+        if (highWater == ids.length) {
+            grow(ids.length * 2);
+        }
+        return highWater++;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        ratingScores = new double[capacity];
+        ratingCounts = new long[capacity];
+        cityCodes = new int[capacity];
+        ratingCodes = new int[capacity];
+        names = new String[capacity];
+        addresses = new String[capacity];
+        mapUrls = new String[capacity];
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        ratingScores = Arrays.copyOf(ratingScores, capacity);
+        ratingCounts = Arrays.copyOf(ratingCounts, capacity);
+        cityCodes = Arrays.copyOf(cityCodes, capacity);
+        ratingCodes = Arrays.copyOf(ratingCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        addresses = Arrays.copyOf(addresses, capacity);
+        mapUrls = Arrays.copyOf(mapUrls, capacity);
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+}
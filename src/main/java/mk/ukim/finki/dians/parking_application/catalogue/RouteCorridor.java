@@ -0,0 +1,179 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import mk.ukim.finki.dians.parking_application.geo.GeoUtils;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingOnRoute;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidRouteException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the parkings inside a corridor around a route.
+ * The route is cut into short pieces and only the parkings in the bounding box
+ * of every piece (grown by the corridor width) are read from the ParkingCatalogue
+ * columns, so the exact distance is computed for the parkings near the route only,
+ * never for the whole catalogue. A long diagonal segment would have a huge
+ * bounding box, that is why the segments are cut into pieces first.
+ * Distances to a piece are measured on a local flat projection,
+ * which is exact enough for corridors a few kilometers wide.
+ * Every city (shard of the catalogue) near the route is searched in parallel.
+ * The length of the route is limited, so the number of pieces
+ * (at most one per kilometer and segment) stays bounded.
+ */
+@Component
+public class RouteCorridor {
+
+    private static final double MIN_PIECE_KM = 1;
+    private static final Comparator<ParkingOnRoute> ALONG_THE_ROUTE = Comparator
+            .comparingDouble(ParkingOnRoute::getAlongKm)
+            .thenComparingDouble(ParkingOnRoute::getOffsetKm);
+
+    private final ParkingCatalogue parkingCatalogue;
+    private final double maxLengthKm;
+
+    public RouteCorridor(ParkingCatalogue parkingCatalogue,
+                         @Value("${parking.routes.max-length-km:2000}") double maxLengthKm) {
+        this.parkingCatalogue = parkingCatalogue;
+        this.maxLengthKm = maxLengthKm;
+    }
+
+    /**
+     * Finds the parkings at most widthKm away from the route
+     * @param path the route as [latitude, longitude] pairs, at least one
+     * @param widthKm width of the corridor on each side of the route
+     * @return the parkings in the order the driver passes them
+     * @throws InvalidRouteException if the route is longer than the maximum length
+     */
+    public List<ParkingOnRoute> search(List<double[]> path, double widthKm) {
+
+        int segments = Math.max(1, path.size() - 1);
+        double[] segmentKms = new double[segments];
+        double lengthKm = 0;
+        for (int i = 0; i < segments; i++) {
+            double[] from = path.get(i);
+            double[] to = path.get(Math.min(i + 1, path.size() - 1));
+            segmentKms[i] = GeoUtils.haversineDistance(from[0], from[1], to[0], to[1]);
+            lengthKm += segmentKms[i];
+        }
+        if (lengthKm > maxLengthKm) {
+            throw new InvalidRouteException(String.format("the route is %.0f km long, at most %.0f km are allowed", lengthKm, maxLengthKm));
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        double pieceKm = Math.max(MIN_PIECE_KM, 2 * widthKm);
+        double travelledKm = 0;
+        for (int i = 0; i < segments; i++) {
+            double[] from = path.get(i);
+            double[] to = path.get(Math.min(i + 1, path.size() - 1));
+            double segmentKm = segmentKms[i];
+            int count = Math.max(1, (int) Math.ceil(segmentKm / pieceKm));
+
+            for (int piece = 0; piece < count; piece++) {
+                pieces.add(new Piece(interpolate(from, to, (double) piece / count), interpolate(from, to, (double) (piece + 1) / count),
+                        travelledKm + segmentKm * piece / count, widthKm));
+            }
+            travelledKm += segmentKm;
+        }
+
+        // every shard (city) near the route is searched in parallel, a parking is in one shard only
+        List<ParkingOnRoute> result = new ArrayList<>();
+        parkingCatalogue.inShards(shard -> pieces.stream().anyMatch(piece -> piece.intersects(shard)), shard -> {
+            Map<Integer, Hit> hits = new HashMap<>();
+            for (Piece piece : pieces) {
+                searchPiece(shard, piece, widthKm, hits);
+            }
+            // the summaries are created only for the parkings in the corridor
+            List<ParkingOnRoute> found = new ArrayList<>();
+            ParkingColumns columns = shard.columns();
+            for (Map.Entry<Integer, Hit> hit : hits.entrySet()) {
+                found.add(new ParkingOnRoute(columns.summary(hit.getKey()), hit.getValue().alongKm, hit.getValue().offsetKm));
+            }
+            return found;
+        }).forEach(result::addAll);
+
+        result.sort(ALONG_THE_ROUTE);
+        return result;
+    }
+
+    /**
+     * Reads the parkings of the shard in the grown bounding box of one piece of the route
+     * and keeps those inside the corridor, a parking near several pieces
+     * is kept with the piece it is closest to
+     */
+    private void searchPiece(CatalogueShard shard, Piece piece, double widthKm, Map<Integer, Hit> hits) {
+
+        double[] start = piece.start;
+        double[] end = piece.end;
+
+        // flat projection around the middle of the piece, in kilometers
+        double kmPerLatitude = GeoUtils.KM_PER_DEGREE_LATITUDE;
+        double kmPerLongitude = kmPerLatitude * Math.cos(GeoUtils.toRad((start[0] + end[0]) / 2));
+        double dx = (end[1] - start[1]) * kmPerLongitude;
+        double dy = (end[0] - start[0]) * kmPerLatitude;
+        double lengthSquared = dx * dx + dy * dy;
+        ParkingColumns columns = shard.columns();
+
+        shard.forEachSlotInBox(piece.minLatitude, piece.minLongitude, piece.maxLatitude, piece.maxLongitude, slot -> {
+            double px = (columns.longitude(slot) - start[1]) * kmPerLongitude;
+            double py = (columns.latitude(slot) - start[0]) * kmPerLatitude;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+            double offsetKm = Math.hypot(px - t * dx, py - t * dy);
+            if (offsetKm > widthKm) {
+                return;
+            }
+            Hit previous = hits.get(slot);
+            if (previous == null || offsetKm < previous.offsetKm) {
+                hits.put(slot, new Hit(piece.startKm + t * Math.sqrt(lengthSquared), offsetKm));
+            }
+        });
+    }
+
+    private static double[] interpolate(double[] from, double[] to, double fraction) {
+        return new double[]{from[0] + (to[0] - from[0]) * fraction, from[1] + (to[1] - from[1]) * fraction};
+    }
+
+    /**
+     * A piece of the route and its bounding box grown by the corridor width
+     */
+    private static class Piece {
+        private final double[] start;
+        private final double[] end;
+        private final double startKm;
+        private final double minLatitude;
+        private final double minLongitude;
+        private final double maxLatitude;
+        private final double maxLongitude;
+
+        private Piece(double[] start, double[] end, double startKm, double widthKm) {
+            this.start = start;
+            this.end = end;
+            this.startKm = startKm;
+            double latitudeDelta = GeoUtils.latitudeDelta(widthKm);
+            double longitudeDelta = GeoUtils.longitudeDelta(widthKm,
+                    Math.max(Math.abs(start[0]), Math.abs(end[0])) + latitudeDelta);
+            this.minLatitude = Math.min(start[0], end[0]) - latitudeDelta;
+            this.minLongitude = Math.min(start[1], end[1]) - longitudeDelta;
+            this.maxLatitude = Math.max(start[0], end[0]) + latitudeDelta;
+            this.maxLongitude = Math.max(start[1], end[1]) + longitudeDelta;
+        }
+
+        private boolean intersects(CatalogueShard shard) {
+            return shard.intersects(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        }
+    }
+
+    private static class Hit {
+        private final double alongKm;
+        private final double offsetKm;
+
+        private Hit(double alongKm, double offsetKm) {
+            this.alongKm = alongKm;
+            this.offsetKm = offsetKm;
+        }
+    }
+}
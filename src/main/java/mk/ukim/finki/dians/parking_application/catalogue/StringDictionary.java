@@ -0,0 +1,46 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding of a column with few distinct values (cities, ratings):
+ * every distinct string is kept once and the column stores its int code.
+ * Codes are never reused, the dictionary only grows with new values.
+ * Not thread-safe.
+ */
+class StringDictionary {
+
+    static final int NULL = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    String decode(int code) {
+        return code == NULL ? null : values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    void clear() {
+        codes.clear();
+        values.clear();
+    }
+}
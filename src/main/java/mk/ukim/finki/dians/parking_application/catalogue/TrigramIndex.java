@@ -0,0 +1,86 @@
+package mk.ukim.finki.dians.parking_application.catalogue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Text index for the substring (like '%term%') searches: every trigram
+ * (three consecutive characters) of a text points to the slots whose text contains it.
+ * A text containing the term contains all of the term's trigrams, so the slots of the
+ * rarest of them are the only candidates, and the caller checks them with contains().
+ * The texts must be normalized (upper-cased) by the caller, the same way as the terms.
+ * Not thread-safe, the owner guards it with its lock.
+ */
+class TrigramIndex {
+
+    private final Map<Long, IntBag> postings = new HashMap<>();
+
+    void add(int slot, String text) {
+        for (long trigram : trigrams(text)) {
+            postings.computeIfAbsent(trigram, key -> new IntBag()).add(slot);
+        }
+    }
+
+    void remove(int slot, String text) {
+        for (long trigram : trigrams(text)) {
+            IntBag posting = postings.get(trigram);
+            if (posting != null && posting.remove(slot) && posting.size() == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Visits the slots which may contain the term
+     * @param term the normalized term
+     * @param action called for every candidate slot
+     * @return false if the term is shorter than a trigram and nothing was visited,
+     *         the caller then has to check all of its slots
+     */
+    boolean forEachCandidate(String term, IntConsumer action) {
+        long[] trigrams = trigrams(term);
+        if (trigrams.length == 0) {
+            return false;
+        }
+        IntBag rarest = null;
+        for (long trigram : trigrams) {
+            IntBag posting = postings.get(trigram);
+            if (posting == null) {
+                // no text has this trigram, so no text contains the term
+                return true;
+            }
+            if (rarest == null || posting.size() < rarest.size()) {
+                rarest = posting;
+            }
+        }
+        rarest.forEach(action);
+        return true;
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * @return the distinct trigrams of the text, three chars packed in a long
+     */
+    private static long[] trigrams(String text) {
+        if (text == null || text.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[text.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+}
@@ -0,0 +1,217 @@
+package mk.ukim.finki.dians.parking_application.config;
+
+import mk.ukim.finki.dians.parking_application.model.User;
+import mk.ukim.finki.dians.parking_application.model.enumeration.Role;
+import mk.ukim.finki.dians.parking_application.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Issues and verifies the signed authentication tokens
+ * used by the stateless authentication mode.
+ * <p>
+ * A token has the form {@code payload.signature}, both Base64URL encoded,
+ * where the payload is {@code role|expiry|epoch|username} and the signature is
+ * an HMAC-SHA256 of the payload. Every node configured with the same secret
+ * accepts the tokens issued by the others, so no session state is shared.
+ * Successfully verified tokens are cached until they expire, so a returning
+ * user costs a map lookup instead of a signature calculation. The least
+ * recently used tokens leave the cache first when it is full.
+ * <p>
+ * A logout starts a new token epoch of the user, which rejects every token
+ * issued to the user before, also a stolen copy of the logged out one.
+ * The epochs are read from the database at most once per
+ * "parking.security.token.epoch-check-interval" per user, so the other nodes
+ * reject the revoked tokens after that interval at the latest.
+ */
+@Component
+public class AuthenticationTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final UserService userService;
+    private final byte[] secret;
+    private final Duration timeToLive;
+    private final long epochCheckMillis;
+    private final Map<String, VerifiedToken> verifiedTokens;
+    private final Map<String, TokenEpoch> epochs;
+
+    public AuthenticationTokenService(UserService userService,
+                                      @Value("${parking.security.stateless:false}") boolean stateless,
+                                      @Value("${parking.security.token.secret:}") String secret,
+                                      @Value("${parking.security.token.time-to-live:60m}") Duration timeToLive,
+                                      @Value("${parking.security.token.cache-size:10000}") int cacheSize,
+                                      @Value("${parking.security.token.epoch-check-interval:30s}") Duration epochCheckInterval) {
+        if (stateless && secret.isEmpty()) {
+            throw new IllegalStateException("parking.security.token.secret must be set in stateless mode");
+        }
+        this.userService = userService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.timeToLive = timeToLive;
+        this.epochCheckMillis = epochCheckInterval.toMillis();
+        this.verifiedTokens = leastRecentlyUsed(cacheSize);
+        this.epochs = leastRecentlyUsed(cacheSize);
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Creates a token for an authenticated user
+     * @param authentication the result of a successful login
+     * @return the signed token
+     */
+    public String issue(Authentication authentication) {
+
+        Role role = Role.ROLE_USER;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (Role.ROLE_ADMIN.getAuthority().equals(authority.getAuthority())) {
+                role = Role.ROLE_ADMIN;
+            }
+        }
+        long expiry = System.currentTimeMillis() / 1000 + timeToLive.getSeconds();
+        long epoch = currentEpoch(authentication.getName());
+        byte[] payload = (role.name() + "|" + expiry + "|" + epoch + "|" + authentication.getName())
+                .getBytes(StandardCharsets.UTF_8);
+
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Verifies a token and rebuilds the authentication it stands for.
+     * The user is not loaded from the database, the role stored in the token is trusted.
+     * @param token the token sent by the client
+     * @return the authentication or null if the token is invalid, expired or revoked
+     */
+    public Authentication verify(String token) {
+
+        long now = System.currentTimeMillis() / 1000;
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (cached.expiry > now && cached.epoch == currentEpoch(cached.authentication.getName())) {
+                return cached.authentication;
+            }
+            verifiedTokens.remove(token);
+            return null;
+        }
+
+        int separator = token.indexOf('.');
+        if (separator < 0 || secret.length == 0) {
+            return null;
+        }
+
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, separator));
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+
+            String[] parts = new String(payload, StandardCharsets.UTF_8).split("\\|", 4);
+            if (parts.length != 4) {
+                return null;
+            }
+            long expiry = Long.parseLong(parts[1]);
+            long epoch = Long.parseLong(parts[2]);
+            if (expiry <= now || epoch != currentEpoch(parts[3])) {
+                return null;
+            }
+
+            User user = new User(parts[3], null, null, null, Role.valueOf(parts[0]));
+            Authentication authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+
+            verifiedTokens.put(token, new VerifiedToken(authentication, expiry, epoch));
+            return authentication;
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether a valid token should be replaced with a fresh one,
+     * which happens once more than half of its lifetime has passed
+     * @param token a token which was successfully verified
+     * @return true if a new token should be issued
+     */
+    public boolean shouldRenew(String token) {
+        VerifiedToken cached = verifiedTokens.get(token);
+        return cached != null && cached.expiry - System.currentTimeMillis() / 1000 < timeToLive.getSeconds() / 2;
+    }
+
+    /**
+     * Revokes all of the tokens issued to a user until now, called at logout
+     * @param username the user's username
+     */
+    public void revoke(String username) {
+        long epoch = userService.revokeTokens(username);
+        epochs.put(username, new TokenEpoch(epoch, System.currentTimeMillis()));
+    }
+
+    private long currentEpoch(String username) {
+        long now = System.currentTimeMillis();
+        TokenEpoch epoch = epochs.get(username);
+        if (epoch == null || now - epoch.checkedAt >= epochCheckMillis) {
+            epoch = new TokenEpoch(userService.findTokenEpoch(username), now);
+            epochs.put(username, epoch);
+        }
+        return epoch.epoch;
+    }
+
+    private static <V> Map<String, V> leastRecentlyUsed(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static class VerifiedToken {
+        private final Authentication authentication;
+        private final long expiry;
+        private final long epoch;
+
+        private VerifiedToken(Authentication authentication, long expiry, long epoch) {
+            this.authentication = authentication;
+            this.expiry = expiry;
+            this.epoch = epoch;
+        }
+    }
+
+    private static class TokenEpoch {
+        private final long epoch;
+        private final long checkedAt;
+
+        private TokenEpoch(long epoch, long checkedAt) {
+            this.epoch = epoch;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
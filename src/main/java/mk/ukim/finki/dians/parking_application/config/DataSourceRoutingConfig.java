@@ -0,0 +1,84 @@
+package mk.ukim.finki.dians.parking_application.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting of the database traffic, enabled with
+ * "parking.datasource.routing.enabled=true".
+ * The primary pool is configured with the usual spring.datasource properties,
+ * the replicas share its credentials and pool settings unless
+ * "parking.datasource.replica-username/password" are set.
+ * The pool statistics are available through
+ * {@code dataSource.unwrap(ReadWriteRoutingDataSource.class)}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "parking.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    private ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+    /**
+     * The routing data source and its pools are not beans of their own,
+     * otherwise the data source initialization of Spring Boot would
+     * ask for the primary data source while it is still being created.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${parking.datasource.replica-urls:}") List<String> replicaUrls,
+            @Value("${parking.datasource.replica-username:${spring.datasource.username:}}") String username,
+            @Value("${parking.datasource.replica-password:${spring.datasource.password:}}") String password,
+            @Value("${parking.datasource.replica-connection-timeout:2s}") Duration connectionTimeout,
+            @Value("${parking.datasource.replica-retry-interval:30s}") Duration retryInterval) {
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            // a replica which is down must not stop the application from starting
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+
+        this.readWriteRoutingDataSource = new ReadWriteRoutingDataSource(primary, replicas, retryInterval.toMillis());
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (readWriteRoutingDataSource != null) {
+            readWriteRoutingDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package mk.ukim.finki.dians.parking_application.config;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.User;
+import mk.ukim.finki.dians.parking_application.model.enumeration.Role;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeds the embedded database of the "local" profile with
+ * a synthetic parking catalogue and two users (one admin, one regular user),
+ * so the application and the load tests can run without the production database.
+ * The size of the catalogue is configured with the "parking.seed.parkings" property.
+ */
+@Component
+@Profile("local")
+public class LocalDataInitializer {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String[] CITIES = {"Skopje", "Bitola", "Kumanovo", "Prilep", "Tetovo",
+            "Veles", "Ohrid", "Shtip", "Strumica", "Kavadarci"};
+    private static final double[][] CITY_CENTERS = {{41.9981, 21.4254}, {41.0297, 21.3292}, {42.1322, 21.7144},
+            {41.3441, 21.5528}, {42.0069, 20.9715}, {41.7165, 21.7723}, {41.1231, 20.8016}, {41.7464, 22.1997},
+            {41.4378, 22.6427}, {41.4331, 22.0119}};
+    private static final String[] STREETS = {"Partizanska", "Ilindenska", "Makedonija", "Goce Delchev",
+            "Kej 13 Noemvri", "Jane Sandanski", "Kliment Ohridski", "Vasil Glavinov", "Boris Trajkovski",
+            "Marshal Tito", "Dame Gruev", "Orce Nikolov"};
+    private static final String[] NAMES = {"City Parking", "Garage", "Public Parking", "Parking Lot",
+            "Underground Parking", "Park & Ride"};
+
+    private final ParkingRepository parkingRepository;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final int parkings;
+    private final long randomSeed;
+    private final String adminUsername;
+    private final String userUsername;
+    private final String password;
+
+    public LocalDataInitializer(ParkingRepository parkingRepository,
+                                UserRepository userRepository,
+                                PasswordEncoder passwordEncoder,
+                                @Value("${parking.seed.parkings:1000}") int parkings,
+                                @Value("${parking.seed.random-seed:42}") long randomSeed,
+                                @Value("${parking.seed.admin-username:admin}") String adminUsername,
+                                @Value("${parking.seed.user-username:user}") String userUsername,
+                                @Value("${parking.seed.password:password}") String password) {
+        this.parkingRepository = parkingRepository;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.parkings = parkings;
+        this.randomSeed = randomSeed;
+        this.adminUsername = adminUsername;
+        this.userUsername = userUsername;
+        this.password = password;
+    }
+
+    /**
+     * Fills an empty database once the application has started.
+     * Does nothing if there are already parkings stored,
+     * so a restart with a file based database keeps its data.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void seed() {
+
+        if (!this.userRepository.findByUsername(adminUsername).isPresent()) {
+            this.userRepository.save(new User(adminUsername, passwordEncoder.encode(password), "Admin", "Admin", Role.ROLE_ADMIN));
+        }
+        if (!this.userRepository.findByUsername(userUsername).isPresent()) {
+            this.userRepository.save(new User(userUsername, passwordEncoder.encode(password), "User", "User"));
+        }
+
+        if (this.parkingRepository.count() > 0) {
+            return;
+        }
+
+        Random random = new Random(randomSeed);
+        List<Parking> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < parkings; i++) {
+            batch.add(randomParking(random, i));
+            if (batch.size() == BATCH_SIZE) {
+                this.parkingRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        this.parkingRepository.saveAll(batch);
+    }
+
+    /**
+     * Creates one synthetic parking within a few kilometers of a city center.
+     * Cities are picked with a skewed distribution (the capital gets most of the
+     * parkings) to resemble the production catalogue.
+     * @param random source of randomness
+     * @param index sequence number of the parking
+     * @return the parking, not yet saved
+     */
+    private static Parking randomParking(Random random, int index) {
+        int cityIndex = Math.min((int) (Math.abs(random.nextGaussian()) * 3), CITIES.length - 1);
+        double latitude = CITY_CENTERS[cityIndex][0] + (random.nextDouble() - 0.5) * 0.06;
+        double longitude = CITY_CENTERS[cityIndex][1] + (random.nextDouble() - 0.5) * 0.08;
+        String street = STREETS[random.nextInt(STREETS.length)];
+
+        Parking parking = new Parking(
+                street + " " + NAMES[random.nextInt(NAMES.length)] + " " + index,
+                CITIES[cityIndex],
+                street + " " + (1 + random.nextInt(200)),
+                latitude,
+                longitude,
+                String.valueOf(1 + random.nextInt(5)));
+        parking.setMapUrl(String.format(Locale.ROOT, "https://maps.google.com/maps?q=%f,%f&z=16&output=embed", latitude, longitude));
+        return parking;
+    }
+}
@@ -0,0 +1,152 @@
+package mk.ukim.finki.dians.parking_application.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data source which sends the read-only transactions to the replica pools
+ * (round robin) and everything else to the primary pool. It chooses the pool
+ * itself instead of extending AbstractRoutingDataSource, whose single lookup
+ * key per connection can not fall back to another pool when one fails.
+ * <p>
+ * A replica which fails to give a connection is skipped for the retry interval
+ * and the connection is taken from the next replica or from the primary,
+ * so a replica outage only moves the reads back to the primary.
+ * It has to be wrapped in a LazyConnectionDataSourceProxy, so the physical
+ * connection is fetched after the read-only flag of the transaction is set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Map<String, DataSource> pools = new LinkedHashMap<>();
+    private final Map<String, PoolStatistics> statistics = new LinkedHashMap<>();
+    private final long retryIntervalMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, long retryIntervalMillis) {
+        this.primary = primary;
+        this.retryIntervalMillis = retryIntervalMillis;
+
+        pools.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + (i + 1);
+            replicaKeys.add(key);
+            pools.put(key, replicas.get(i));
+        }
+        for (String key : pools.keySet()) {
+            statistics.put(key, new PoolStatistics());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(pool -> pool.getConnection(username, password));
+    }
+
+    /**
+     * Takes the connection of a read-only transaction from the next available replica,
+     * any other connection, or one which no replica could give, from the primary
+     */
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!replicaKeys.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            for (int attempt = 0; attempt < replicaKeys.size(); attempt++) {
+                String key = replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+                PoolStatistics replicaStatistics = statistics.get(key);
+                if (replicaStatistics.isDown()) {
+                    continue;
+                }
+                try {
+                    Connection connection = source.connect(pools.get(key));
+                    replicaStatistics.connections.incrementAndGet();
+                    return connection;
+                } catch (SQLException exception) {
+                    replicaStatistics.failures.incrementAndGet();
+                    replicaStatistics.downUntil = System.currentTimeMillis() + retryIntervalMillis;
+                    LOGGER.warn("Replica pool {} is unavailable, reads fall back to the primary", key, exception);
+                }
+            }
+            statistics.get(PRIMARY).fallbacks.incrementAndGet();
+        }
+        Connection connection = source.connect(primary);
+        statistics.get(PRIMARY).connections.incrementAndGet();
+        return connection;
+    }
+
+    /**
+     * Statistics of every pool: connections handed out, failures,
+     * fallbacks to the primary and the current state of the Hikari pool.
+     * @return statistics keyed by the pool name
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, DataSource> pool : pools.entrySet()) {
+            PoolStatistics poolStatistics = statistics.get(pool.getKey());
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("connections", poolStatistics.connections.get());
+            values.put("failures", poolStatistics.failures.get());
+            values.put("fallbacks", poolStatistics.fallbacks.get());
+            values.put("available", !poolStatistics.isDown());
+            if (pool.getValue() instanceof HikariDataSource) {
+                HikariPoolMXBean pooled = ((HikariDataSource) pool.getValue()).getHikariPoolMXBean();
+                if (pooled != null) {
+                    values.put("active", pooled.getActiveConnections());
+                    values.put("idle", pooled.getIdleConnections());
+                    values.put("waiting", pooled.getThreadsAwaitingConnection());
+                }
+            }
+            result.put(pool.getKey(), values);
+        }
+        return result;
+    }
+
+    /**
+     * Closes all of the pools
+     */
+    @Override
+    public void close() {
+        for (DataSource pool : pools.values()) {
+            if (pool instanceof HikariDataSource) {
+                ((HikariDataSource) pool).close();
+            }
+        }
+    }
+
+    private interface ConnectionSource {
+        Connection connect(DataSource pool) throws SQLException;
+    }
+
+    private static class PoolStatistics {
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong fallbacks = new AtomicLong();
+        private volatile long downUntil;
+
+        private boolean isDown() {
+            return System.currentTimeMillis() < downUntil;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package mk.ukim.finki.dians.parking_application.config;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Filter of the stateless authentication mode.
+ * Reads the authentication token cookie, verifies it and puts the
+ * authentication it carries in the security context of the current request.
+ * Tokens older than half of their lifetime are replaced with a fresh one.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private final AuthenticationTokenService tokenService;
+    private final String cookieName;
+    private final boolean secureCookie;
+
+    public TokenAuthenticationFilter(AuthenticationTokenService tokenService, String cookieName, boolean secureCookie) {
+        this.tokenService = tokenService;
+        this.cookieName = cookieName;
+        this.secureCookie = secureCookie;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String token = readToken(request);
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Authentication authentication = tokenService.verify(token);
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                if (tokenService.shouldRenew(token)) {
+                    writeToken(response, tokenService.issue(authentication));
+                }
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Sets the token cookie on a response (after a successful login or a renewal)
+     * @param response the response to the client
+     * @param token the signed token
+     */
+    public void writeToken(HttpServletResponse response, String token) {
+        Cookie cookie = new Cookie(cookieName, token);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(secureCookie);
+        cookie.setMaxAge((int) tokenService.getTimeToLive().getSeconds());
+        response.addCookie(cookie);
+    }
+
+    private String readToken(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+}
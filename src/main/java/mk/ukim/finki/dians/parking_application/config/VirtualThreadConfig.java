@@ -0,0 +1,73 @@
+package mk.ukim.finki.dians.parking_application.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual-thread request execution, enabled with
+ * "parking.threads.virtual.enabled=true" on Java 21 or newer.
+ * Tomcat runs every request on a new virtual thread instead of a thread
+ * of its pool, so a request blocked on JDBC or on BCrypt does not hold
+ * a platform thread. The ConcurrencyLimitFilter then limits the requests
+ * in progress, by default to the 200 the platform-thread pool of Tomcat would run.
+ * The limit is not the size of the connection pool: most requests are answered
+ * from the in-memory catalogue and caches without a connection, and those which
+ * need one wait for it in the pool.
+ * The application is still built for Java 8, the virtual thread executor
+ * is looked up by reflection, and the platform-thread mode stays the default.
+ */
+@Configuration
+@ConditionalOnProperty(name = "parking.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    /**
+     * @return an executor which starts a new virtual thread for every task
+     * @throws IllegalStateException if the JVM does not have virtual threads
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOGGER.info("Requests are executed on virtual threads");
+            return executor;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException exception) {
+            throw new IllegalStateException(String.format(
+                    "parking.threads.virtual.enabled=true needs Java 21 or newer, the application runs on Java %s",
+                    System.getProperty("java.version")), exception);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * The limit is applied before the security filters, so the logins
+     * (a database query and a BCrypt hash) wait for a permit too
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${parking.threads.virtual.max-concurrent-requests:200}") int maxConcurrentRequests,
+            @Value("${parking.threads.virtual.queue-timeout:10s}") Duration queueTimeout) {
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(maxConcurrentRequests, queueTimeout));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -1,13 +1,17 @@
 package mk.ukim.finki.dians.parking_application.config;
 
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 
 /**
  * Web Security customization
@@ -18,9 +22,21 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final CustomUsernamePasswordAuthenticationProvider authenticationProvider;
+    private final AuthenticationTokenService tokenService;
+    private final boolean stateless;
+    private final String tokenCookieName;
+    private final boolean secureCookie;
 
-    public WebSecurityConfig(CustomUsernamePasswordAuthenticationProvider authenticationProvider) {
+    public WebSecurityConfig(CustomUsernamePasswordAuthenticationProvider authenticationProvider,
+                             AuthenticationTokenService tokenService,
+                             @Value("${parking.security.stateless:false}") boolean stateless,
+                             @Value("${parking.security.token.cookie-name:parking-app-token}") String tokenCookieName,
+                             @Value("${parking.security.token.secure-cookie:false}") boolean secureCookie) {
         this.authenticationProvider = authenticationProvider;
+        this.tokenService = tokenService;
+        this.stateless = stateless;
+        this.tokenCookieName = tokenCookieName;
+        this.secureCookie = secureCookie;
     }
 
     /**
@@ -47,13 +63,51 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .logoutUrl("/logout")
                 .clearAuthentication(true)
                 .invalidateHttpSession(true)
-                .deleteCookies("JSESSIONID")
+                .deleteCookies("JSESSIONID", tokenCookieName)
                 .logoutSuccessUrl("/login");
 
+        if (stateless) {
+            configureStateless(http);
+        }
+    }
+
+    /**
+     * Stateless mode: no servlet session is created, the login issues a signed
+     * token cookie which authenticates the following requests on any node.
+     * The token is read before the logout, so the logout can revoke it.
+     * @param http
+     * @throws Exception
+     */
+    private void configureStateless(HttpSecurity http) throws Exception {
+
+        TokenAuthenticationFilter tokenFilter = new TokenAuthenticationFilter(tokenService, tokenCookieName, secureCookie);
+        SimpleUrlAuthenticationSuccessHandler redirectHandler = new SimpleUrlAuthenticationSuccessHandler("/");
+        redirectHandler.setAlwaysUseDefaultTargetUrl(true);
+
+        http.sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .requestCache()
+                .requestCache(new NullRequestCache())
+                .and()
+                .formLogin()
+                .successHandler((request, response, authentication) -> {
+                    tokenFilter.writeToken(response, tokenService.issue(authentication));
+                    redirectHandler.onAuthenticationSuccess(request, response, authentication);
+                })
+                .and()
+                .logout()
+                .addLogoutHandler((request, response, authentication) -> {
+                    if (authentication != null) {
+                        tokenService.revoke(authentication.getName());
+                    }
+                })
+                .and()
+                .addFilterBefore(tokenFilter, LogoutFilter.class);
     }
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) {
      auth.authenticationProvider(authenticationProvider);
     }
-}
\ No newline at end of file
+}
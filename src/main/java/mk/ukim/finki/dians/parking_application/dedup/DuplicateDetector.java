@@ -0,0 +1,266 @@
+package mk.ukim.finki.dians.parking_application.dedup;
+
+import mk.ukim.finki.dians.parking_application.catalogue.GridIndex;
+import mk.ukim.finki.dians.parking_application.catalogue.ParkingCatalogue;
+import mk.ukim.finki.dians.parking_application.geo.GeoUtils;
+import mk.ukim.finki.dians.parking_application.model.dto.DuplicateParkings;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds parkings which were added more than once: two parkings are duplicates
+ * if they are at most radius-meters apart and their names are similar enough
+ * (Jaro-Winkler). The parkings are hashed into a grid of cells about as big
+ * as the radius, so every parking is compared only with the parkings in its
+ * own and the neighbouring cells, which keeps a scan of the whole table
+ * close to linear.
+ * <p>
+ * Names are compared without the accents, the punctuation and the words
+ * every parking has ("parking", "garage"...), and two names with different
+ * numbers ("Garage 1", "Garage 2") are never duplicates.
+ */
+@Component
+public class DuplicateDetector {
+
+    private static final Set<String> GENERIC_WORDS = new HashSet<>(Arrays.asList(
+            "parking", "parkings", "lot", "garage", "car", "park", "public", "city", "the", "паркинг"));
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ParkingRepository parkingRepository;
+    private final ParkingCatalogue parkingCatalogue;
+    private final double radiusKm;
+    private final double nameSimilarity;
+
+    public DuplicateDetector(ParkingRepository parkingRepository,
+                             ParkingCatalogue parkingCatalogue,
+                             @Value("${parking.dedup.radius-meters:75}") double radiusMeters,
+                             @Value("${parking.dedup.name-similarity:0.88}") double nameSimilarity) {
+        this.parkingRepository = parkingRepository;
+        this.parkingCatalogue = parkingCatalogue;
+        this.radiusKm = radiusMeters / 1000;
+        this.nameSimilarity = nameSimilarity;
+    }
+
+    /**
+     * Scans the whole table for duplicates
+     * @return every pair of duplicates once, the closest pairs first
+     */
+    public List<DuplicateParkings> findAll() {
+
+        List<ParkingSummary> parkings = parkingRepository.findAllSummaries();
+        GridIndex index = new GridIndex(GeoUtils.latitudeDelta(radiusKm));
+        String[] names = new String[parkings.size()];
+        for (int slot = 0; slot < parkings.size(); slot++) {
+            ParkingSummary parking = parkings.get(slot);
+            if (parking.getLatitude() != null && parking.getLongitude() != null) {
+                index.add(slot, parking.getLatitude(), parking.getLongitude());
+            }
+            names[slot] = normalize(parking.getName());
+        }
+
+        List<DuplicateParkings> duplicates = new ArrayList<>();
+        for (int slot = 0; slot < parkings.size(); slot++) {
+            ParkingSummary parking = parkings.get(slot);
+            if (parking.getLatitude() == null || parking.getLongitude() == null) {
+                continue;
+            }
+            int current = slot;
+            forEachNearby(index, parking.getLatitude(), parking.getLongitude(), other -> {
+                // every pair is compared once, from its lower slot
+                if (other > current) {
+                    compare(parking, names[current], parkings.get(other), names[other]).ifPresent(duplicates::add);
+                }
+            });
+        }
+        duplicates.sort(Comparator.comparingDouble(DuplicateParkings::getDistanceMeters));
+        return duplicates;
+    }
+
+    /**
+     * Checks a parking which is about to be saved against the database.
+     * Called in the transaction which saves the parking, so it also finds
+     * the parkings saved a moment ago, which the catalogue may not have yet.
+     * @param id id of the parking if it is being edited, null if it is new
+     * @param name name of the parking
+     * @param latitude geographic north-south coordinate
+     * @param longitude geographic east-west coordinate
+     * @return the closest existing parking it duplicates, if there is one
+     */
+    public Optional<ParkingSummary> findDuplicateOf(Long id, String name, Double latitude, Double longitude) {
+
+        if (name == null || latitude == null || longitude == null) {
+            return Optional.empty();
+        }
+        double latitudeDelta = GeoUtils.latitudeDelta(radiusKm);
+        double longitudeDelta = GeoUtils.longitudeDelta(radiusKm, latitude);
+        List<ParkingSummary> candidates = parkingRepository.findSummariesInBox(latitude - latitudeDelta, latitude + latitudeDelta,
+                longitude - longitudeDelta, longitude + longitudeDelta);
+        return closestDuplicate(id, name, latitude, longitude, candidates);
+    }
+
+    /**
+     * Starts the checks of the items of a batch, which are checked against the
+     * catalogue, faster than the database for thousands of items
+     * @param removed ids of the parkings deleted in the batch, they are not duplicates of anything
+     * @return the check, used by one thread for one batch
+     */
+    public BatchCheck startBatch(Set<Long> removed) {
+        return new BatchCheck(removed);
+    }
+
+    private Optional<ParkingSummary> closestDuplicate(Long id, String name, double latitude, double longitude,
+                                                      List<ParkingSummary> candidates) {
+
+        ParkingSummary parking = new ParkingSummary(id, name, null, null, latitude, longitude, null, null, null, null);
+        String normalized = normalize(name);
+        List<DuplicateParkings> duplicates = new ArrayList<>();
+        for (ParkingSummary candidate : candidates) {
+            if (!candidate.getId().equals(id) && candidate.getLatitude() != null && candidate.getLongitude() != null) {
+                compare(parking, normalized, candidate, normalize(candidate.getName())).ifPresent(duplicates::add);
+            }
+        }
+        return duplicates.stream()
+                .min(Comparator.comparingDouble(DuplicateParkings::getDistanceMeters))
+                .map(DuplicateParkings::getSecond);
+    }
+
+    /**
+     * Checks the items of a batch against the catalogue as the batch has changed it so far:
+     * the parkings accepted earlier in the batch replace their entries of the catalogue,
+     * which does not have them until the change log is polled.
+     */
+    public class BatchCheck {
+
+        private final Set<Long> removed;
+        private final Map<Long, ParkingSummary> accepted = new HashMap<>();
+        private final List<ParkingSummary> slots = new ArrayList<>();
+        private final GridIndex index = new GridIndex(GeoUtils.latitudeDelta(radiusKm));
+
+        private BatchCheck(Set<Long> removed) {
+            this.removed = removed;
+        }
+
+        /**
+         * @param id id of the edited parking
+         * @param name name of the parking
+         * @param latitude geographic north-south coordinate
+         * @param longitude geographic east-west coordinate
+         * @return the closest parking it duplicates, if there is one
+         */
+        public Optional<ParkingSummary> findDuplicateOf(Long id, String name, Double latitude, Double longitude) {
+
+            if (name == null || latitude == null || longitude == null) {
+                return Optional.empty();
+            }
+            List<ParkingSummary> candidates = new ArrayList<>();
+            double latitudeDelta = GeoUtils.latitudeDelta(radiusKm);
+            double longitudeDelta = GeoUtils.longitudeDelta(radiusKm, latitude);
+            parkingCatalogue.forEachInBox(latitude - latitudeDelta, longitude - longitudeDelta,
+                    latitude + latitudeDelta, longitude + longitudeDelta, candidate -> {
+                        if (!accepted.containsKey(candidate.getId()) && !removed.contains(candidate.getId())) {
+                            candidates.add(candidate);
+                        }
+                    });
+            forEachNearby(index, latitude, longitude, slot -> {
+                // a parking accepted more than once has a slot for every version, only the last one counts
+                ParkingSummary candidate = slots.get(slot);
+                if (accepted.get(candidate.getId()) == candidate && !removed.contains(candidate.getId())) {
+                    candidates.add(candidate);
+                }
+            });
+            return closestDuplicate(id, name, latitude, longitude, candidates);
+        }
+
+        /**
+         * @param parking an item which passed the check and will be written
+         */
+        public void accept(ParkingSummary parking) {
+            accepted.put(parking.getId(), parking);
+            if (parking.getLatitude() != null && parking.getLongitude() != null) {
+                index.add(slots.size(), parking.getLatitude(), parking.getLongitude());
+                slots.add(parking);
+            }
+        }
+
+        /**
+         * @param ids parkings whose accepted items were rolled back, the catalogue has them again
+         */
+        public void forget(Collection<Long> ids) {
+            for (Long id : ids) {
+                accepted.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Visits the slots in the cells around the location, compare() checks the exact distance
+     */
+    private void forEachNearby(GridIndex index, double latitude, double longitude, IntConsumer action) {
+        double latitudeDelta = GeoUtils.latitudeDelta(radiusKm);
+        double longitudeDelta = GeoUtils.longitudeDelta(radiusKm, latitude);
+        index.forEachCandidate(latitude - latitudeDelta, longitude - longitudeDelta,
+                latitude + latitudeDelta, longitude + longitudeDelta, action);
+    }
+
+    private Optional<DuplicateParkings> compare(ParkingSummary parking, String name,
+                                                ParkingSummary candidate, String candidateName) {
+
+        double distanceKm = GeoUtils.haversineDistance(parking.getLatitude(), parking.getLongitude(),
+                candidate.getLatitude(), candidate.getLongitude());
+        if (distanceKm > radiusKm || !numbers(name).equals(numbers(candidateName))) {
+            return Optional.empty();
+        }
+        double similarity = JaroWinkler.similarity(name, candidateName);
+        if (similarity < nameSimilarity) {
+            return Optional.empty();
+        }
+        return Optional.of(new DuplicateParkings(parking, candidate, distanceKm * 1000, similarity));
+    }
+
+    /**
+     * Lower case, without accents, punctuation and generic words
+     */
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String plain = ACCENTS.matcher(Normalizer.normalize(name.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)).replaceAll("");
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATORS.split(plain)) {
+            if (!word.isEmpty() && !GENERIC_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        // a name made only of generic words is compared as it is
+        return words.isEmpty() ? SEPARATORS.matcher(plain).replaceAll(" ").trim() : String.join(" ", words);
+    }
+
+    private static List<String> numbers(String name) {
+        List<String> numbers = new ArrayList<>();
+        Matcher matcher = NUMBER.matcher(name);
+        while (matcher.find()) {
+            numbers.add(matcher.group());
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,71 @@
+package mk.ukim.finki.dians.parking_application.dedup;
+
+/**
+ * Jaro-Winkler similarity of two strings, from 0 (nothing in common)
+ * to 1 (equal). It counts the characters which match within a short window
+ * and the transpositions between them, and favours strings with a common
+ * prefix, which suits short names with typos and abbreviations.
+ */
+public final class JaroWinkler {
+
+    private static final double PREFIX_SCALE = 0.1;
+    private static final int MAX_PREFIX = 4;
+
+    private JaroWinkler() {
+
+    }
+
+    public static double similarity(String first, String second) {
+
+        if (first.equals(second)) {
+            return 1;
+        }
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+
+        int window = Math.max(0, Math.max(first.length(), second.length()) / 2 - 1);
+        boolean[] firstMatched = new boolean[first.length()];
+        boolean[] secondMatched = new boolean[second.length()];
+
+        int matches = 0;
+        for (int i = 0; i < first.length(); i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(second.length() - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!secondMatched[j] && first.charAt(i) == second.charAt(j)) {
+                    firstMatched[i] = true;
+                    secondMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < first.length(); i++) {
+            if (firstMatched[i]) {
+                while (!secondMatched[j]) {
+                    j++;
+                }
+                if (first.charAt(i) != second.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+
+        double m = matches;
+        double jaro = (m / first.length() + m / second.length() + (m - transpositions / 2.0) / m) / 3;
+
+        int prefix = 0;
+        while (prefix < Math.min(MAX_PREFIX, Math.min(first.length(), second.length()))
+                && first.charAt(prefix) == second.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * PREFIX_SCALE * (1 - jaro);
+    }
+}
@@ -0,0 +1,107 @@
+package mk.ukim.finki.dians.parking_application.geo;
+
+import java.util.Arrays;
+
+/**
+ * Geohash encoding of coordinates.
+ * A geohash of a given precision names a rectangular cell,
+ * and nearby coordinates usually share the same cell
+ * (precision 6 is roughly a 1.2 x 0.6 km cell).
+ */
+public final class GeoHash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            DECODE[BASE32[i]] = i;
+        }
+    }
+
+    private GeoHash() {
+
+    }
+
+    /**
+     * Encodes coordinates as a geohash
+     * @param latitude north-south coordinate
+     * @param longitude east-west coordinate
+     * @param precision number of characters of the result (1 - 12)
+     * @return the geohash of the cell containing the coordinates
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLatitude = -90, maxLatitude = 90;
+        double minLongitude = -180, maxLongitude = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+
+        for (int i = 0; i < precision; i++) {
+            int value = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                if (evenBit) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (longitude >= middle) {
+                        value = value * 2 + 1;
+                        minLongitude = middle;
+                    } else {
+                        value = value * 2;
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (latitude >= middle) {
+                        value = value * 2 + 1;
+                        minLatitude = middle;
+                    } else {
+                        value = value * 2;
+                        maxLatitude = middle;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = BASE32[value];
+        }
+        return new String(hash);
+    }
+
+    /**
+     * Decodes the cell of a geohash
+     * @param hash a valid geohash
+     * @return the cell bounds as {minLatitude, minLongitude, maxLatitude, maxLongitude}
+     */
+    public static double[] bounds(String hash) {
+        double minLatitude = -90, maxLatitude = 90;
+        double minLongitude = -180, maxLongitude = 180;
+        boolean evenBit = true;
+
+        for (int i = 0; i < hash.length(); i++) {
+            char character = hash.charAt(i);
+            int value = character < 128 ? DECODE[character] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash: " + hash);
+            }
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((value >> bit) & 1) == 1;
+                if (evenBit) {
+                    double middle = (minLongitude + maxLongitude) / 2;
+                    if (set) {
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    double middle = (minLatitude + maxLatitude) / 2;
+                    if (set) {
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{minLatitude, minLongitude, maxLatitude, maxLongitude};
+    }
+}
@@ -0,0 +1,64 @@
+package mk.ukim.finki.dians.parking_application.geo;
+
+/**
+ * Helper methods for distances on the surface of the Earth.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double KM_PER_DEGREE_LATITUDE = 111.32;
+
+    private GeoUtils() {
+
+    }
+
+    /**
+     * A method for calculating angular distance between
+     * two points on the surface of a sphere, using Math class.
+     * @param latitude1 latitude of the first location
+     * @param longitude1 longitude of the first location
+     * @param latitude2 latitude of the second location
+     * @param longitude2 longitude of the second location
+     * @return distance between the two locations in kilometers
+     */
+    public static double haversineDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDistance = toRad(latitude2 - latitude1);
+        double longitudeDistance = toRad(longitude2 - longitude1);
+
+        double a = Math.sin(latitudeDistance / 2) * Math.sin(latitudeDistance / 2) +
+                Math.cos(toRad(latitude1)) * Math.cos(toRad(latitude2)) *
+                        Math.sin(longitudeDistance / 2) * Math.sin(longitudeDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Conversion from degrees to radians using math function
+     * @param value
+     * @return the value in radians
+     */
+    public static double toRad(double value) {
+        return value * Math.PI / 180;
+    }
+
+    /**
+     * Degrees of latitude which correspond to a distance
+     * @param kilometers distance in north-south direction
+     * @return difference in latitude
+     */
+    public static double latitudeDelta(double kilometers) {
+        return kilometers / KM_PER_DEGREE_LATITUDE;
+    }
+
+    /**
+     * Degrees of longitude which correspond to a distance at a given latitude
+     * @param kilometers distance in east-west direction
+     * @param latitude latitude where the distance is measured
+     * @return difference in longitude
+     */
+    public static double longitudeDelta(double kilometers, double latitude) {
+        double cos = Math.cos(toRad(latitude));
+        return cos < 1e-6 ? 360 : kilometers / (KM_PER_DEGREE_LATITUDE * cos);
+    }
+}
@@ -0,0 +1,245 @@
+package mk.ukim.finki.dians.parking_application.heatmap;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.HeatmapTile;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Parking density grids for every zoom level of the map, in the usual
+ * web map tiling (Web Mercator, z/x/y, 2^z x 2^z tiles at zoom z).
+ * Every tile is divided into BINS x BINS bins which count the parkings inside them.
+ * Only the tiles with parkings are stored, and of a tile only its occupied bins,
+ * so the many tiles of the high zoom levels with a parking or two stay small. The counts are computed once,
+ * when the application is ready, and then follow the change log: a changed
+ * parking is taken out of the bins of its old position and added to the bins
+ * of the new one, on every zoom level, so nothing is ever recomputed.
+ */
+@Component
+public class ParkingHeatmap implements ParkingChangeListener {
+
+    public static final int BINS = 32;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private final ParkingRepository parkingRepository;
+    private final int minZoom;
+    private final int maxZoom;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // tiles of every zoom level, keyed by (x << 32) | y
+    private final List<Map<Long, Tile>> levels = new ArrayList<>();
+    // last known position of every parking, as Mercator x and y from 0 to 1
+    private final Map<Long, double[]> positions = new HashMap<>();
+    private volatile boolean loaded;
+
+    public ParkingHeatmap(ParkingRepository parkingRepository,
+                          @Value("${parking.heatmap.min-zoom:0}") int minZoom,
+                          @Value("${parking.heatmap.max-zoom:15}") int maxZoom) {
+        this.parkingRepository = parkingRepository;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Computes the tiles after the application has started
+     * (and after the local data has been seeded)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void load() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (ParkingSummary parking : parkingRepository.findAllSummaries()) {
+                    add(parking);
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds one tile
+     * @param zoom zoom level, from min-zoom to max-zoom
+     * @param x column of the tile, from 0 to 2^zoom - 1
+     * @param y row of the tile, from 0 to 2^zoom - 1
+     * @return the tile with its non-empty bins, or null if the tile does not exist
+     */
+    public HeatmapTile tile(int zoom, int x, int y) {
+
+        if (zoom < minZoom || zoom > maxZoom || x < 0 || y < 0 || x >= (1 << zoom) || y >= (1 << zoom)) {
+            return null;
+        }
+        load();
+        lock.readLock().lock();
+        try {
+            return encode(zoom, x, y, levels.get(zoom).get(key(x, y)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the changed parkings to the bins of their current position,
+     * the deleted ones are taken out
+     * @param changes the new entries of the change log
+     */
+    @Override
+    public void onParkingChanges(List<ParkingChange> changes) {
+
+        Set<Long> changedIds = new HashSet<>();
+        for (ParkingChange change : changes) {
+            changedIds.add(change.getParkingId());
+        }
+        List<ParkingSummary> current = parkingRepository.findSummariesByIdIn(changedIds);
+
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                // not loaded yet, the load reads the current state anyway
+                return;
+            }
+            for (Long id : changedIds) {
+                double[] previous = positions.remove(id);
+                if (previous != null) {
+                    count(previous, -1);
+                }
+            }
+            for (ParkingSummary parking : current) {
+                add(parking);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(ParkingSummary parking) {
+        if (parking.getLatitude() == null || parking.getLongitude() == null) {
+            return;
+        }
+        double[] position = project(parking.getLatitude(), parking.getLongitude());
+        positions.put(parking.getId(), position);
+        count(position, 1);
+    }
+
+    /**
+     * Adds the delta to the bin of the position on every zoom level
+     */
+    private void count(double[] position, int delta) {
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            long size = (long) BINS << zoom;
+            long column = Math.min(size - 1, (long) (position[0] * size));
+            long row = Math.min(size - 1, (long) (position[1] * size));
+            long tileKey = key(column / BINS, row / BINS);
+            int bin = (int) (row % BINS) * BINS + (int) (column % BINS);
+
+            Map<Long, Tile> tiles = levels.get(zoom);
+            Tile tile = tiles.computeIfAbsent(tileKey, key -> new Tile());
+            tile.add(bin, delta);
+            if (tile.total <= 0) {
+                tiles.remove(tileKey);
+            }
+        }
+    }
+
+    /**
+     * Only the non-empty bins are sent, as pairs of the bin index (row * BINS + column)
+     * and the count. The ETag is a hash of the counts, so it is the same on every node
+     * and changes only when the tile does.
+     */
+    private static HeatmapTile encode(int zoom, int x, int y, Tile tile) {
+
+        if (tile == null) {
+            return new HeatmapTile(zoom, x, y, BINS, 0, 0, new int[0], "0");
+        }
+        int max = 0;
+        int[] cells = new int[tile.occupied * 2];
+        long hash = 17;
+        for (int slot = 0, i = 0; slot < tile.occupied; slot++) {
+            int bin = tile.bins[slot];
+            int count = tile.counts[slot];
+            max = Math.max(max, count);
+            cells[i++] = bin;
+            cells[i++] = count;
+            hash = 31 * (31 * hash + bin) + count;
+        }
+        return new HeatmapTile(zoom, x, y, BINS, tile.total, max, cells, Long.toHexString(hash));
+    }
+
+    /**
+     * Web Mercator projection, both coordinates from 0 to 1 (y grows to the south)
+     */
+    private static double[] project(double latitude, double longitude) {
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+        double sin = Math.sin(Math.toRadians(clamped));
+        double x = (longitude + 180) / 360;
+        double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return new double[]{Math.max(0, Math.min(1, x)), Math.max(0, Math.min(1, y))};
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) | y;
+    }
+
+    /**
+     * Counts of the occupied bins of a tile, sorted by the bin index.
+     * An empty bin takes no space, a tile with one parking is a few dozen bytes.
+     */
+    private static class Tile {
+        private short[] bins = new short[2];
+        private int[] counts = new int[2];
+        private int occupied;
+        private int total;
+
+        private void add(int bin, int delta) {
+            total += delta;
+            int slot = Arrays.binarySearch(bins, 0, occupied, (short) bin);
+            if (slot >= 0) {
+                counts[slot] += delta;
+                if (counts[slot] <= 0) {
+                    System.arraycopy(bins, slot + 1, bins, slot, occupied - slot - 1);
+                    System.arraycopy(counts, slot + 1, counts, slot, occupied - slot - 1);
+                    occupied--;
+                }
+                return;
+            }
+            if (delta <= 0) {
+                return;
+            }
+            slot = -slot - 1;
+            if (occupied == bins.length) {
+                bins = Arrays.copyOf(bins, occupied * 2);
+                counts = Arrays.copyOf(counts, occupied * 2);
+            }
+            System.arraycopy(bins, slot, bins, slot + 1, occupied - slot);
+            System.arraycopy(counts, slot, counts, slot + 1, occupied - slot);
+            bins[slot] = (short) bin;
+            counts[slot] = delta;
+            occupied++;
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package mk.ukim.finki.dians.parking_application.model;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 /**
  * Class for the Parking Entity
  * Contains all of the entity fields and their
  * declaration, the class constructor and/or setters/getters.
+ * Parkings change rarely, so they are kept in the second-level cache.
+ * The rating is the one typed in by the admin, the users' ratings are
+ * aggregated in ratingCount, ratingSum and ratingScore (a Bayesian average),
+ * which are maintained by the ParkingRatingService.
+ * The version is the id of the change log entry of the last change,
+ * the offline clients use it to download only the newer changes.
  */
 @Data
 @Entity
-@Table(name = "parkings")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "parkings", indexes = @Index(name = "idx_parkings_location", columnList = "latitude, longitude"))
 public class Parking {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +35,15 @@ public class Parking {
     private Double longitude;
     private String rating;
     private String mapUrl;
+    // written only by the rating flush, so an edit of a (possibly stale) parking never writes them back
+    @Column(insertable = false, updatable = false)
+    private Long ratingCount;
+    @Column(insertable = false, updatable = false)
+    private Long ratingSum;
+    @Column(insertable = false, updatable = false)
+    private Double ratingScore;
+    private Long version;
+    private LocalDateTime updatedAt;
 
 
     public Parking() {
@@ -43,4 +63,10 @@ public class Parking {
         return mapUrl;
     }
 
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
 }
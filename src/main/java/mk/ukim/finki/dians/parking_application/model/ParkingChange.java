@@ -0,0 +1,40 @@
+package mk.ukim.finki.dians.parking_application.model;
+
+import lombok.Data;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Class for the ParkingChange Entity
+ * One row of the parking change log, written in the same transaction
+ * as the change of the parking itself. The ids are increasing, so every node
+ * can follow the log and invalidate its local caches.
+ */
+@Data
+@Entity
+@Table(name = "parking_changes", indexes = @Index(name = "idx_parking_changes_changed_at", columnList = "changedAt"))
+public class ParkingChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long parkingId;
+
+    @Enumerated(value = EnumType.STRING)
+    private ChangeType type;
+
+    private LocalDateTime changedAt;
+
+
+    public ParkingChange() {
+
+    }
+
+    public ParkingChange(Long parkingId, ChangeType type) {
+        this.parkingId = parkingId;
+        this.type = type;
+        this.changedAt = LocalDateTime.now();
+    }
+}
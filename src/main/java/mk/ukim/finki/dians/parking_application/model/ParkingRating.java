@@ -0,0 +1,39 @@
+package mk.ukim.finki.dians.parking_application.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Class for the ParkingRating Entity
+ * The rating (1 to 5 stars) one user gave to one parking.
+ * A user has at most one rating per parking, rating again replaces it.
+ * The aggregates of the ratings are kept in the Parking entity.
+ */
+@Data
+@Entity
+@Table(name = "parking_ratings",
+        uniqueConstraints = @UniqueConstraint(name = "uk_parking_ratings_parking_user", columnNames = {"parkingId", "username"}))
+public class ParkingRating {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long parkingId;
+    private String username;
+    private Integer stars;
+    private LocalDateTime ratedAt;
+
+
+    public ParkingRating() {
+
+    }
+
+    public ParkingRating(Long parkingId, String username, Integer stars) {
+        this.parkingId = parkingId;
+        this.username = username;
+        this.stars = stars;
+        this.ratedAt = LocalDateTime.now();
+    }
+}
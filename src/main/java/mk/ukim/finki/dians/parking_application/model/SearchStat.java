@@ -0,0 +1,38 @@
+package mk.ukim.finki.dians.parking_application.model;
+
+import lombok.Data;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Class for the SearchStat Entity
+ * How many times a city and address were searched for in one time window
+ * and whether the searches found any parking. The rows are written by the
+ * SearchAnalytics in batches, a window may have more than one row of the
+ * same search, so the counts are always summed.
+ */
+@Data
+@Entity
+@Table(name = "search_stats", indexes = @Index(name = "idx_search_stats_window_start", columnList = "windowStart"))
+public class SearchStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDateTime windowStart;
+
+    private String city;
+    private String address;
+
+    @Enumerated(value = EnumType.STRING)
+    private SearchOutcome outcome;
+
+    private Long searches;
+
+
+    public SearchStat() {
+
+    }
+}
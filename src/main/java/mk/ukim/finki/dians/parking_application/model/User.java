@@ -34,6 +34,9 @@ public class User implements UserDetails {
     @Enumerated(value =  EnumType.STRING)
     private Role role;
 
+    // increased when the user logs out, the authentication tokens issued before are no longer accepted
+    private Long tokenEpoch;
+
     public User() {
 
     }
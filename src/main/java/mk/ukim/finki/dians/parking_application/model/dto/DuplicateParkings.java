@@ -0,0 +1,15 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+
+/**
+ * Two parkings which are probably the same place:
+ * close to each other and with similar names.
+ */
+@Value
+public class DuplicateParkings {
+    ParkingSummary first;
+    ParkingSummary second;
+    double distanceMeters;
+    double nameSimilarity;
+}
@@ -0,0 +1,22 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+/**
+ * One tile of the parking density map. The tile is divided into
+ * size x size bins, cells holds only the non-empty ones as pairs of
+ * the bin index (row * size + column) and the number of parkings in it.
+ */
+@Value
+public class HeatmapTile {
+    int zoom;
+    int x;
+    int y;
+    int size;
+    int total;
+    int max;
+    int[] cells;
+    @JsonIgnore
+    String etag;
+}
@@ -0,0 +1,13 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Body of an admin batch: the edits and deletes, applied in their order.
+ */
+@Data
+public class ParkingBatch {
+    private List<ParkingMutation> mutations;
+}
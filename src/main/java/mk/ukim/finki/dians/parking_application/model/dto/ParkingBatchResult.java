@@ -0,0 +1,16 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of an admin batch: how many items were applied and
+ * how many were not, and the outcome of every item in the order of the batch.
+ */
+@Value
+public class ParkingBatchResult {
+    int applied;
+    int rejected;
+    List<ParkingMutationResult> results;
+}
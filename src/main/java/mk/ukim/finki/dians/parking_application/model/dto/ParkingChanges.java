@@ -0,0 +1,21 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Changes of the parking catalogue since a version, for the offline clients.
+ * The client applies the upserts and the deletes (tombstones) and stores the version
+ * for the next request. If reset is true, the upserts are the whole catalogue
+ * and the client has to drop everything it has stored before applying them.
+ * If more is true, there are more changes and the client should ask again right away.
+ */
+@Value
+public class ParkingChanges {
+    long version;
+    boolean reset;
+    boolean more;
+    List<ParkingSummary> upserts;
+    List<Long> deletes;
+}
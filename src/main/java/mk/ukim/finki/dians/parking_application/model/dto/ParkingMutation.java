@@ -0,0 +1,20 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Data;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationAction;
+
+/**
+ * One item of an admin batch: an edit or a delete of the parking with the id.
+ * An edit changes only the fields which are set, the others keep their values.
+ */
+@Data
+public class ParkingMutation {
+    private MutationAction action;
+    private Long id;
+    private String name;
+    private String city;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    private String rating;
+}
@@ -0,0 +1,18 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationAction;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationStatus;
+
+/**
+ * Outcome of one item of an admin batch, index is its position in the batch
+ * and message says why it was not applied.
+ */
+@Value
+public class ParkingMutationResult {
+    int index;
+    Long id;
+    MutationAction action;
+    MutationStatus status;
+    String message;
+}
@@ -0,0 +1,14 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+
+/**
+ * Parking found along a route: alongKm is how far along the route
+ * the driver passes it, offsetKm is how far it is from the route.
+ */
+@Value
+public class ParkingOnRoute {
+    ParkingSummary parking;
+    double alongKm;
+    double offsetKm;
+}
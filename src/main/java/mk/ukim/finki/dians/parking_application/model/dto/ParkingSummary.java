@@ -0,0 +1,32 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+/**
+ * Read-only view of a parking used by the listing and search pages.
+ * It is created directly by the JPQL constructor expressions of the
+ * ParkingRepository, so it is never managed by the persistence context
+ * (no dirty-checking snapshot, no entity entry per row).
+ */
+@Value
+public class ParkingSummary {
+    Long id;
+    String name;
+    String city;
+    String address;
+    Double latitude;
+    Double longitude;
+    String rating;
+    String mapUrl;
+    Double ratingScore;
+    Long ratingCount;
+
+    /**
+     * @return true if at least one user has rated the parking
+     */
+    @JsonIgnore
+    public boolean isRatedByUsers() {
+        return ratingCount != null && ratingCount > 0;
+    }
+}
@@ -0,0 +1,18 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Parkings inside a map viewport. If there are more of them than the
+ * requested limit, thinned is true and only the best parking of every
+ * part of the viewport is returned; total is always the number of all
+ * parkings inside the viewport.
+ */
+@Value
+public class ParkingViewport {
+    int total;
+    boolean thinned;
+    List<ParkingSummary> parkings;
+}
@@ -0,0 +1,14 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+
+/**
+ * Where a location is, as far as the parking catalogue knows: the city and
+ * the address of the closest parking, and how far that parking is.
+ */
+@Value
+public class Place {
+    String city;
+    String address;
+    double distanceKm;
+}
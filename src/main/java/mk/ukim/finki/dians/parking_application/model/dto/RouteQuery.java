@@ -0,0 +1,16 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Body of a route search: the route as a list of [latitude, longitude]
+ * pairs, from the start to the destination, and the width of the corridor
+ * on each side of the route in kilometers.
+ */
+@Data
+public class RouteQuery {
+    private List<double[]> path;
+    private Double widthKm;
+}
@@ -0,0 +1,16 @@
+package mk.ukim.finki.dians.parking_application.model.dto;
+
+import lombok.Value;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+
+/**
+ * A city and address which were searched for, as typed by the users,
+ * and how many times in the period of the report.
+ */
+@Value
+public class TopSearch {
+    String city;
+    String address;
+    SearchOutcome outcome;
+    Long searches;
+}
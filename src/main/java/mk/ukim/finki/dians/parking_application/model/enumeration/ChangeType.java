@@ -0,0 +1,10 @@
+package mk.ukim.finki.dians.parking_application.model.enumeration;
+
+/**
+ * Kind of change recorded in the parking change log.
+ */
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
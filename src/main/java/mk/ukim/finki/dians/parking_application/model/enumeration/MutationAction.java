@@ -0,0 +1,9 @@
+package mk.ukim.finki.dians.parking_application.model.enumeration;
+
+/**
+ * What one item of an admin batch does with a parking.
+ */
+public enum MutationAction {
+    EDIT,
+    DELETE
+}
@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.model.enumeration;
+
+/**
+ * Outcome of one item of an admin batch.
+ */
+public enum MutationStatus {
+    APPLIED,
+    NOT_FOUND,
+    INVALID,
+    DUPLICATE,
+    FAILED
+}
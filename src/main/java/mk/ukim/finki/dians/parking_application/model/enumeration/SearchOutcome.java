@@ -0,0 +1,9 @@
+package mk.ukim.finki.dians.parking_application.model.enumeration;
+
+/**
+ * Whether a search by city and/or address found any parking.
+ */
+public enum SearchOutcome {
+    FOUND,
+    NOT_FOUND
+}
@@ -0,0 +1,13 @@
+package mk.ukim.finki.dians.parking_application.model.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DuplicateParkingException extends RuntimeException {
+
+    public DuplicateParkingException(String name, String existingName, Long existingId) {
+        super(String.format("Parking %s looks like a duplicate of the parking %s (id %d) at the same place",
+                name, existingName, existingId));
+    }
+}
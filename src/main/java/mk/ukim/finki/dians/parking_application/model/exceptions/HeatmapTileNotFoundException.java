@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.model.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class HeatmapTileNotFoundException extends RuntimeException {
+
+    public HeatmapTileNotFoundException(int zoom, int x, int y) {
+        super(String.format("Heatmap tile %d/%d/%d does not exist", zoom, x, y));
+    }
+}
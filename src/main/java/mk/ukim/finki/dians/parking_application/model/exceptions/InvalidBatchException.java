@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.model.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidBatchException extends RuntimeException {
+
+    public InvalidBatchException(String reason) {
+        super(String.format("Invalid batch: %s", reason));
+    }
+}
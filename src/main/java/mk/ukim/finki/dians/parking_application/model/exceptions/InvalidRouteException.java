@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.model.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRouteException extends RuntimeException {
+
+    public InvalidRouteException(String reason) {
+        super(String.format("Invalid route: %s", reason));
+    }
+}
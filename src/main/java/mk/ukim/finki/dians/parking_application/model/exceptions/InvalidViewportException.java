@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.model.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidViewportException extends RuntimeException {
+
+    public InvalidViewportException(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        super(String.format("Invalid viewport: (%f, %f) - (%f, %f)", minLatitude, minLongitude, maxLatitude, maxLongitude));
+    }
+}
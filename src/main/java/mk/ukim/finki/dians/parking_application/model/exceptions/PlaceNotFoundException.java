@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.model.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class PlaceNotFoundException extends RuntimeException {
+
+    public PlaceNotFoundException(double latitude, double longitude) {
+        super(String.format("There is no parking near %f, %f", latitude, longitude));
+    }
+}
@@ -0,0 +1,168 @@
+package mk.ukim.finki.dians.parking_application.ranking;
+
+import mk.ukim.finki.dians.parking_application.geo.GeoUtils;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ranks search results by relevance: a weighted blend of
+ * the distance from the user, the rating and how well the parking
+ * matches the searched city and address. Every part is scored from 0 to 1,
+ * the parts which cannot be scored (no location, no searched text)
+ * are left out and the other weights are scaled up.
+ * Only the best K parkings are selected, in one pass over the candidates.
+ */
+@Component
+public class ParkingRanker {
+
+    private static final Comparator<Scored> BY_SCORE = Comparator.<Scored>comparingDouble(scored -> scored.score)
+            .thenComparing(scored -> scored.parking.getName(), Comparator.nullsFirst(Comparator.reverseOrder()));
+
+    private final double distanceWeight;
+    private final double ratingWeight;
+    private final double textWeight;
+    private final double distanceScaleKm;
+    private final double priorMean;
+    private final int topK;
+
+    public ParkingRanker(@Value("${parking.ranking.weight.distance:0.5}") double distanceWeight,
+                         @Value("${parking.ranking.weight.rating:0.3}") double ratingWeight,
+                         @Value("${parking.ranking.weight.text:0.2}") double textWeight,
+                         @Value("${parking.ranking.distance-scale-km:1}") double distanceScaleKm,
+                         @Value("${parking.ratings.prior-mean:3}") double priorMean,
+                         @Value("${parking.ranking.top-k:50}") int topK) {
+        this.distanceWeight = distanceWeight;
+        this.ratingWeight = ratingWeight;
+        this.textWeight = textWeight;
+        this.distanceScaleKm = distanceScaleKm;
+        this.priorMean = priorMean;
+        this.topK = topK;
+    }
+
+    /**
+     * Selects the most relevant parkings
+     * @param candidates the parkings to rank, in any order
+     * @param city the searched city, may be empty
+     * @param address the searched address, may be empty
+     * @param latitude north-south coordinate of the user, may be null
+     * @param longitude east-west coordinate of the user, may be null
+     * @return at most K parkings, the most relevant first
+     */
+    public List<ParkingSummary> rank(List<ParkingSummary> candidates, String city, String address,
+                                     Double latitude, Double longitude) {
+
+        String searchedCity = normalize(city);
+        String searchedAddress = normalize(address);
+        boolean hasLocation = latitude != null && longitude != null;
+        boolean hasText = !searchedCity.isEmpty() || !searchedAddress.isEmpty();
+
+        double totalWeight = ratingWeight + (hasLocation ? distanceWeight : 0) + (hasText ? textWeight : 0);
+        if (totalWeight <= 0) {
+            totalWeight = 1;
+        }
+
+        TopK<Scored> best = new TopK<>(topK, BY_SCORE);
+        for (ParkingSummary parking : candidates) {
+            double score = ratingWeight * ratingScore(parking);
+            if (hasLocation) {
+                score += distanceWeight * distanceScore(parking, latitude, longitude);
+            }
+            if (hasText) {
+                score += textWeight * textScore(parking, searchedCity, searchedAddress);
+            }
+            best.offer(new Scored(parking, score / totalWeight));
+        }
+
+        List<ParkingSummary> result = new ArrayList<>();
+        for (Scored scored : best.toList()) {
+            result.add(scored.parking);
+        }
+        return result;
+    }
+
+    /**
+     * @return the users' score, or the admin's rating if nobody has rated the parking, from 0 to 1
+     */
+    private double ratingScore(ParkingSummary parking) {
+        double rating = priorMean;
+        if (parking.isRatedByUsers()) {
+            rating = parking.getRatingScore();
+        } else if (parking.getRating() != null) {
+            try {
+                rating = Double.parseDouble(parking.getRating().trim().replace(',', '.'));
+            } catch (NumberFormatException ignored) {
+                // not a number ("N/A", empty), the prior mean is used
+            }
+        }
+        return Math.max(0, Math.min(rating, 5)) / 5;
+    }
+
+    /**
+     * @return 1 at the user's location, 0.5 at the distance scale, falling towards 0
+     */
+    private double distanceScore(ParkingSummary parking, double latitude, double longitude) {
+        if (parking.getLatitude() == null || parking.getLongitude() == null) {
+            return 0;
+        }
+        double distance = GeoUtils.haversineDistance(latitude, longitude, parking.getLatitude(), parking.getLongitude());
+        return 1 / (1 + distance / distanceScaleKm);
+    }
+
+    /**
+     * @return average match quality of the searched city and address, from 0 to 1
+     */
+    private static double textScore(ParkingSummary parking, String city, String address) {
+        double score = 0;
+        int terms = 0;
+        if (!city.isEmpty()) {
+            score += matchQuality(normalize(parking.getCity()), city);
+            terms++;
+        }
+        if (!address.isEmpty()) {
+            score += Math.max(matchQuality(normalize(parking.getAddress()), address),
+                    matchQuality(normalize(parking.getName()), address));
+            terms++;
+        }
+        return score / terms;
+    }
+
+    /**
+     * Exact match is better than a prefix, a prefix of a word is better
+     * than a match in the middle of a word
+     */
+    private static double matchQuality(String value, String term) {
+        if (value.equals(term)) {
+            return 1;
+        }
+        if (value.startsWith(term)) {
+            return 0.8;
+        }
+        if (value.contains(" " + term)) {
+            return 0.6;
+        }
+        if (value.contains(term)) {
+            return 0.4;
+        }
+        return 0;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Scored {
+        private final ParkingSummary parking;
+        private final double score;
+
+        private Scored(ParkingSummary parking, double score) {
+            this.parking = parking;
+            this.score = score;
+        }
+    }
+}
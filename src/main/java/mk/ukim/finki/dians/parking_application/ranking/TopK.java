@@ -0,0 +1,55 @@
+package mk.ukim.finki.dians.parking_application.ranking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the K best elements seen so far in a bounded min-heap,
+ * so selecting them from n elements takes O(n log K) time and O(K) memory
+ * instead of sorting all n elements.
+ * @param <T> type of the elements
+ */
+public class TopK<T> {
+
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<T> heap;
+
+    /**
+     * @param k how many elements are kept
+     * @param comparator orders the elements from the worst to the best
+     */
+    public TopK(int k, Comparator<? super T> comparator) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024), comparator);
+    }
+
+    /**
+     * Offers an element, it is kept only if it is among the K best so far
+     * @param element the element
+     */
+    public void offer(T element) {
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (comparator.compare(element, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * @return the kept elements, the best one first
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(Collections.reverseOrder(comparator));
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package mk.ukim.finki.dians.parking_application.repository;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JPA repository of the ParkingChange Entity (the parking change log).
+ */
+@Repository
+public interface ParkingChangeRepository extends JpaRepository<ParkingChange, Long> {
+
+    List<ParkingChange> findTop500ByIdGreaterThanOrderById(Long id);
+
+    List<ParkingChange> findTop1000ByIdGreaterThanOrderById(Long id);
+
+    List<ParkingChange> findAllByIdIn(Collection<Long> ids);
+
+    @Query("select c.id from ParkingChange c where c.id > :afterId and c.id <= :lastId order by c.id")
+    List<Long> findIdsBetween(@Param("afterId") Long afterId, @Param("lastId") Long lastId);
+
+    @Query("select max(c.id) from ParkingChange c where c.changedAt <= :before")
+    Long findLastIdChangedBefore(@Param("before") LocalDateTime before);
+
+    @Query("select c.id from ParkingChange c where c.id > :afterId and c.changedAt > :after order by c.id")
+    List<Long> findIdsChangedAfter(@Param("afterId") Long afterId, @Param("after") LocalDateTime after);
+
+    @Query("select coalesce(max(c.id), 0) from ParkingChange c")
+    Long findLastId();
+
+    @Query("select min(c.id) from ParkingChange c")
+    Long findFirstId();
+
+    /**
+     * The newest entry is always kept, so the log is never empty and
+     * the id of its first entry tells which versions can still be synced
+     */
+    @Modifying
+    @Query("delete from ParkingChange c where c.changedAt < :before and c.id < (select max(l.id) from ParkingChange l)")
+    int deleteAllChangedBefore(@Param("before") LocalDateTime before);
+
+}
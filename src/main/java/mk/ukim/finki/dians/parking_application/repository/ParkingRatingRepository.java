@@ -0,0 +1,32 @@
+package mk.ukim.finki.dians.parking_application.repository;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JPA repository of the ParkingRating Entity.
+ */
+@Repository
+public interface ParkingRatingRepository extends JpaRepository<ParkingRating, Long> {
+
+    /**
+     * The ratings are locked until the end of the transaction, so two nodes
+     * flushing a new rating of the same user apply their deltas one after the other
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<ParkingRating> findAllByParkingIdInAndUsernameIn(Collection<Long> parkingIds, Collection<String> usernames);
+
+    @Modifying
+    @Query("delete from ParkingRating r where r.parkingId = :parkingId")
+    int deleteAllByParkingId(@Param("parkingId") Long parkingId);
+
+}
@@ -1,30 +1,59 @@
 package mk.ukim.finki.dians.parking_application.repository;
 
 import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * JPA repository of the Parking Entity.
  * Provides methods for manipulation with the Parking class
  * without their implementation.
+ * The listing and search queries return ParkingSummary projections
+ * instead of managed entities. The search queries are cacheable,
+ * their results are kept in the Hibernate query cache until the parkings table changes.
+ * Their terms are matched literally, the caller escapes \, % and _ with a backslash.
  */
 @Repository
 public interface ParkingRepository extends JpaRepository<Parking, Long> {
 
-    List<Parking> findAllByCityIgnoreCaseContainsOrderByName(String city);
+    String SUMMARY = "select new mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary("
+            + "p.id, p.name, p.city, p.address, p.latitude, p.longitude, p.rating, p.mapUrl, p.ratingScore, p.ratingCount) from Parking p";
 
-    List<Parking> findAllByCityIgnoreCaseContainsOrderByRatingDesc(String city);
+    @Query(SUMMARY)
+    List<ParkingSummary> findAllSummaries();
 
-    List<Parking> findAllByAddressIgnoreCaseContainsOrderByName(String address);
+    @Query(SUMMARY + " where p.id > :afterId order by p.id")
+    List<ParkingSummary> findSummariesAfter(@Param("afterId") Long afterId, Pageable page);
 
-    List<Parking> findAllByAddressIgnoreCaseContainsOrderByRatingDesc(String address);
+    @Query(SUMMARY + " where p.id in :ids")
+    List<ParkingSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 
-    List<Parking> findAllByAddressIgnoreCaseContainsAndCityIgnoreCaseContainsOrderByName(String address, String city);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query(SUMMARY + " where upper(p.city) like upper(concat('%', :city, '%')) escape '\\'")
+    List<ParkingSummary> findSummariesByCity(@Param("city") String city, Sort sort);
 
-    List<Parking> findAllByAddressIgnoreCaseContainsAndCityIgnoreCaseContainsOrderByRatingDesc(String address, String city);
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query(SUMMARY + " where upper(p.address) like upper(concat('%', :address, '%')) escape '\\'")
+    List<ParkingSummary> findSummariesByAddress(@Param("address") String address, Sort sort);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query(SUMMARY + " where upper(p.address) like upper(concat('%', :address, '%')) escape '\\'"
+            + " and upper(p.city) like upper(concat('%', :city, '%')) escape '\\'")
+    List<ParkingSummary> findSummariesByAddressAndCity(@Param("address") String address, @Param("city") String city, Sort sort);
+
+    @Query(SUMMARY + " where p.latitude between :minLatitude and :maxLatitude"
+            + " and p.longitude between :minLongitude and :maxLongitude")
+    List<ParkingSummary> findSummariesInBox(@Param("minLatitude") Double minLatitude, @Param("maxLatitude") Double maxLatitude,
+                                            @Param("minLongitude") Double minLongitude, @Param("maxLongitude") Double maxLongitude);
 
 }
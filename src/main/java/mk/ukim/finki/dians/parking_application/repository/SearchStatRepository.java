@@ -0,0 +1,31 @@
+package mk.ukim.finki.dians.parking_application.repository;
+
+import mk.ukim.finki.dians.parking_application.model.SearchStat;
+import mk.ukim.finki.dians.parking_application.model.dto.TopSearch;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JPA repository of the SearchStat Entity (the search analytics).
+ */
+@Repository
+public interface SearchStatRepository extends JpaRepository<SearchStat, Long> {
+
+    @Query("select new mk.ukim.finki.dians.parking_application.model.dto.TopSearch(s.city, s.address, s.outcome, sum(s.searches))"
+            + " from SearchStat s where s.outcome = :outcome and s.windowStart >= :since"
+            + " group by s.city, s.address, s.outcome order by sum(s.searches) desc, s.city, s.address")
+    List<TopSearch> findTopSearches(@Param("outcome") SearchOutcome outcome, @Param("since") LocalDateTime since, Pageable page);
+
+    @Modifying
+    @Query("delete from SearchStat s where s.windowStart < :before")
+    int deleteAllWindowsBefore(@Param("before") LocalDateTime before);
+
+}
@@ -2,6 +2,9 @@ package mk.ukim.finki.dians.parking_application.repository;
 
 import mk.ukim.finki.dians.parking_application.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -16,4 +19,11 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     Optional<User> findByUsername(String username);
 
+    @Query("select coalesce(u.tokenEpoch, 0) from User u where u.username = :username")
+    Optional<Long> findTokenEpoch(@Param("username") String username);
+
+    @Modifying
+    @Query("update User u set u.tokenEpoch = coalesce(u.tokenEpoch, 0) + 1 where u.username = :username")
+    int increaseTokenEpoch(@Param("username") String username);
+
 }
@@ -0,0 +1,12 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+import mk.ukim.finki.dians.parking_application.model.dto.HeatmapTile;
+
+/**
+ * Interface for the parking density map, served in tiles
+ */
+public interface HeatmapService {
+
+    HeatmapTile findTile(int zoom, int x, int y);
+
+}
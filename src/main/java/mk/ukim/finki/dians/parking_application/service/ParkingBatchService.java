@@ -0,0 +1,16 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingBatchResult;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingMutation;
+
+import java.util.List;
+
+/**
+ * Interface which contains the methods
+ * about the admins' bulk changes of the parkings.
+ */
+public interface ParkingBatchService {
+
+    ParkingBatchResult apply(List<ParkingMutation> mutations);
+
+}
@@ -0,0 +1,21 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+
+import java.util.List;
+
+/**
+ * Interface for the local caches and indexes which have to follow
+ * the changes of the parking catalogue, made on this or on any other node.
+ * Every bean implementing it is notified by the ParkingChangePoller.
+ */
+public interface ParkingChangeListener {
+
+    /**
+     * Called with a batch of changes in the order of the change log.
+     * The same change can be delivered more than once, so applying it must be idempotent.
+     * @param changes the new entries of the change log
+     */
+    void onParkingChanges(List<ParkingChange> changes);
+
+}
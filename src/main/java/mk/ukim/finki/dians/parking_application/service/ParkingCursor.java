@@ -0,0 +1,65 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily fetched list of all the parkings, in the order of their ids.
+ * A page is read (in its own short read-only transaction) only when the
+ * previous one has been iterated over, so at most one page is in memory
+ * and, with spring.jpa.open-in-view off, the connection of a page goes back
+ * to the pool before the page is rendered.
+ * Every iteration starts from the beginning.
+ */
+public class ParkingCursor implements Iterable<ParkingSummary> {
+
+    private final ParkingService parkingService;
+    private final int pageSize;
+    private final Runnable beforeNextPage;
+
+    /**
+     * @param parkingService the service which reads the pages
+     * @param pageSize number of parkings in a page
+     * @param beforeNextPage called before every page after the first one is read,
+     *                       for example to flush what has been rendered so far
+     */
+    public ParkingCursor(ParkingService parkingService, int pageSize, Runnable beforeNextPage) {
+        this.parkingService = parkingService;
+        this.pageSize = pageSize;
+        this.beforeNextPage = beforeNextPage;
+    }
+
+    @Override
+    public Iterator<ParkingSummary> iterator() {
+        return new Iterator<ParkingSummary>() {
+
+            private List<ParkingSummary> page = parkingService.findPageAfter(0L, pageSize);
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position == page.size() && page.size() == pageSize) {
+                    Long lastId = page.get(page.size() - 1).getId();
+                    // the page is released before the next one is read
+                    page = Collections.emptyList();
+                    beforeNextPage.run();
+                    page = parkingService.findPageAfter(lastId, pageSize);
+                    position = 0;
+                }
+                return position < page.size();
+            }
+
+            @Override
+            public ParkingSummary next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(position++);
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+/**
+ * Interface which contains the methods
+ * about the users' ratings of the parkings.
+ */
+public interface ParkingRatingService {
+
+    void rate(Long parkingId, String username, int stars);
+
+    void flush();
+
+}
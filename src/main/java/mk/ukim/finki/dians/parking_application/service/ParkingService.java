@@ -1,6 +1,11 @@
 package mk.ukim.finki.dians.parking_application.service;
 
 import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.DuplicateParkings;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingOnRoute;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingViewport;
+import mk.ukim.finki.dians.parking_application.model.dto.Place;
 
 import java.util.List;
 import java.util.Optional;
@@ -8,22 +13,37 @@ import java.util.Optional;
 /**
  * Interface which contains abstract and public methods
  * about the Parking class.
+ * The listing and search methods return read-only ParkingSummary projections.
  */
 public interface ParkingService {
 
-    List<Parking> findAll();
+    List<ParkingSummary> findAll();
+
+    List<ParkingSummary> findPageAfter(Long afterId, int size);
 
     Optional<Parking> findById(Long id);
 
     void deleteById(Long id);
 
-    List<Parking> findAllByCityOrAndAddressSorted(String city, String address, String sort);
+    List<ParkingSummary> findAllByCityOrAndAddressSorted(String city, String address, String sort);
+
+    List<ParkingSummary> findByCurrentAddress(Double currentlat, Double currentlng);
+
+    ParkingViewport findInViewport(Double minLatitude, Double minLongitude, Double maxLatitude, Double maxLongitude, Integer limit);
+
+    List<ParkingOnRoute> findAlongRoute(List<double[]> path, Double widthKm);
+
+    Optional<Place> findPlace(Double latitude, Double longitude);
+
+    List<DuplicateParkings> findDuplicates();
 
-    List<Parking> findByCurrentAddress(Double currentlat, Double currentlng);
+    List<ParkingSummary> findRanked(String city, String address, Double latitude, Double longitude);
 
-    Optional<Parking> save(String name, String city, String address, Double latitude, Double longitude, String rating);
+    Optional<Parking> save(String name, String city, String address, Double latitude, Double longitude, String rating,
+                           boolean allowDuplicate);
 
-    Optional<Parking> edit(Long id, String name, String city, String address, Double latitude, Double longitude, String rating);
+    Optional<Parking> edit(Long id, String name, String city, String address, Double latitude, Double longitude, String rating,
+                           boolean allowDuplicate);
 
 
 
@@ -0,0 +1,13 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingChanges;
+
+/**
+ * Interface with the methods for the delta synchronization
+ * of the offline clients' parking catalogue.
+ */
+public interface ParkingSyncService {
+
+    ParkingChanges findChangesSince(long version);
+
+}
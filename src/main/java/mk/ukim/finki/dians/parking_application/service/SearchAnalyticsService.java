@@ -0,0 +1,19 @@
+package mk.ukim.finki.dians.parking_application.service;
+
+import mk.ukim.finki.dians.parking_application.model.dto.TopSearch;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Interface which contains the methods
+ * about what the users search for.
+ */
+public interface SearchAnalyticsService {
+
+    void recordSearch(String city, String address, boolean found);
+
+    List<TopSearch> findTopSearches(SearchOutcome outcome, Duration period, int limit);
+
+}
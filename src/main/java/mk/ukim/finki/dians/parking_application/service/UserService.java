@@ -12,4 +12,8 @@ public interface UserService extends UserDetailsService {
 
     User register(String username, String password, String repeatPassword, String name, String surname);
 
+    long findTokenEpoch(String username);
+
+    long revokeTokens(String username);
+
 }
\ No newline at end of file
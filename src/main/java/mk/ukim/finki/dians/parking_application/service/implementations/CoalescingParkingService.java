@@ -0,0 +1,133 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.cache.SingleFlight;
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.DuplicateParkings;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingOnRoute;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingViewport;
+import mk.ukim.finki.dians.parking_application.model.dto.Place;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ParkingService placed in front of the ParkingServiceImpl.
+ * Concurrent identical searches (the same city/address/sort, or the same
+ * coordinates) share one execution of the search and all receive its result,
+ * so a burst of identical requests costs one database query instead of one per request.
+ * The other methods are passed to the ParkingServiceImpl unchanged.
+ */
+@Service
+@Primary
+public class CoalescingParkingService implements ParkingService {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final ParkingService parkingService;
+    private final SingleFlight<String, List<ParkingSummary>> searches = new SingleFlight<>();
+
+    public CoalescingParkingService(@Qualifier("parkingServiceImpl") ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    @Override
+    public List<ParkingSummary> findAll() {
+        return this.parkingService.findAll();
+    }
+
+    @Override
+    public List<ParkingSummary> findPageAfter(Long afterId, int size) {
+        return this.parkingService.findPageAfter(afterId, size);
+    }
+
+    @Override
+    public Optional<Parking> findById(Long id) {
+        return this.parkingService.findById(id);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        this.parkingService.deleteById(id);
+    }
+
+    /**
+     * Search by city and/or address, coalesced with the identical searches in progress
+     * @param city the city where we search
+     * @param address the address of the parking(s)
+     * @param sort show some specific results first
+     * @return unmodifiable list of parkings, shared with the coalesced callers
+     */
+    @Override
+    public List<ParkingSummary> findAllByCityOrAndAddressSorted(String city, String address, String sort) {
+        String key = "text" + SEPARATOR + city + SEPARATOR + address + SEPARATOR + sort;
+        return searches.execute(key, () -> unmodifiable(this.parkingService.findAllByCityOrAndAddressSorted(city, address, sort)));
+    }
+
+    /**
+     * Search by location, coalesced with the searches for the same coordinates in progress
+     * @param currentLatitude north-south coordinate of the user's location
+     * @param currentLongitude east-west coordinate of the user's location
+     * @return unmodifiable list of parkings, shared with the coalesced callers
+     */
+    @Override
+    public List<ParkingSummary> findByCurrentAddress(Double currentLatitude, Double currentLongitude) {
+        String key = "location" + SEPARATOR + currentLatitude + SEPARATOR + currentLongitude;
+        return searches.execute(key, () -> unmodifiable(this.parkingService.findByCurrentAddress(currentLatitude, currentLongitude)));
+    }
+
+    @Override
+    public ParkingViewport findInViewport(Double minLatitude, Double minLongitude, Double maxLatitude, Double maxLongitude, Integer limit) {
+        return this.parkingService.findInViewport(minLatitude, minLongitude, maxLatitude, maxLongitude, limit);
+    }
+
+    @Override
+    public List<ParkingOnRoute> findAlongRoute(List<double[]> path, Double widthKm) {
+        return this.parkingService.findAlongRoute(path, widthKm);
+    }
+
+    @Override
+    public Optional<Place> findPlace(Double latitude, Double longitude) {
+        return this.parkingService.findPlace(latitude, longitude);
+    }
+
+    @Override
+    public List<DuplicateParkings> findDuplicates() {
+        return this.parkingService.findDuplicates();
+    }
+
+    /**
+     * Search by relevance, coalesced with the identical searches in progress
+     * @param city the city where we search, may be empty
+     * @param address the address of the parking(s), may be empty
+     * @param latitude north-south coordinate of the user's location, may be null
+     * @param longitude east-west coordinate of the user's location, may be null
+     * @return unmodifiable list of parkings, shared with the coalesced callers
+     */
+    @Override
+    public List<ParkingSummary> findRanked(String city, String address, Double latitude, Double longitude) {
+        String key = "ranked" + SEPARATOR + city + SEPARATOR + address + SEPARATOR + latitude + SEPARATOR + longitude;
+        return searches.execute(key, () -> unmodifiable(this.parkingService.findRanked(city, address, latitude, longitude)));
+    }
+
+    @Override
+    public Optional<Parking> save(String name, String city, String address, Double latitude, Double longitude, String rating,
+                                  boolean allowDuplicate) {
+        return this.parkingService.save(name, city, address, latitude, longitude, rating, allowDuplicate);
+    }
+
+    @Override
+    public Optional<Parking> edit(Long id, String name, String city, String address, Double latitude, Double longitude, String rating,
+                                  boolean allowDuplicate) {
+        return this.parkingService.edit(id, name, city, address, latitude, longitude, rating, allowDuplicate);
+    }
+
+    private static List<ParkingSummary> unmodifiable(List<ParkingSummary> parkings) {
+        return parkings == null ? null : Collections.unmodifiableList(parkings);
+    }
+}
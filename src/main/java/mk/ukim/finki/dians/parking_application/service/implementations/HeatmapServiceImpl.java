@@ -0,0 +1,37 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.heatmap.ParkingHeatmap;
+import mk.ukim.finki.dians.parking_application.model.dto.HeatmapTile;
+import mk.ukim.finki.dians.parking_application.model.exceptions.HeatmapTileNotFoundException;
+import mk.ukim.finki.dians.parking_application.service.HeatmapService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class which implements the HeatmapService interface.
+ * Dependency injections - ParkingHeatmap, which keeps the precomputed tiles.
+ */
+@Service
+public class HeatmapServiceImpl implements HeatmapService {
+
+    private final ParkingHeatmap parkingHeatmap;
+
+    public HeatmapServiceImpl(ParkingHeatmap parkingHeatmap) {
+        this.parkingHeatmap = parkingHeatmap;
+    }
+
+    /**
+     * Method which finds one tile of the density map
+     * @param zoom zoom level of the map
+     * @param x column of the tile
+     * @param y row of the tile
+     * @return the tile, empty if there are no parkings in it
+     */
+    @Override
+    public HeatmapTile findTile(int zoom, int x, int y) {
+        HeatmapTile tile = parkingHeatmap.tile(zoom, x, y);
+        if (tile == null) {
+            throw new HeatmapTileNotFoundException(zoom, x, y);
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,321 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.cache.SecondLevelCacheInvalidator;
+import mk.ukim.finki.dians.parking_application.dedup.DuplicateDetector;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingBatchResult;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingMutation;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingMutationResult;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationAction;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationStatus;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidBatchException;
+import mk.ukim.finki.dians.parking_application.repository.ParkingChangeRepository;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingBatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Class which implements the ParkingBatchService interface.
+ * Dependency injections - ParkingRepository, ParkingChangeRepository,
+ * JdbcTemplate, the transaction manager, DuplicateDetector and SecondLevelCacheInvalidator.
+ * <p>
+ * The batch is split into chunks of BATCH_SIZE items and every chunk is
+ * written in its own transaction with a few JDBC batches (the change log,
+ * the deletes of the ratings and the parkings, the updates of the parkings),
+ * so a large cleanup neither loads the entities one by one nor holds
+ * one long transaction. A chunk which fails is rolled back and its items are
+ * reported as FAILED, the other chunks are still written.
+ * <p>
+ * Every edit is checked for duplicates against the catalogue and against
+ * the edits accepted earlier in the same batch, which the catalogue
+ * does not have yet.
+ * <p>
+ * The writes go past Hibernate, so the second-level cache of this node is
+ * evicted once at the end of the batch, the other nodes (and the in-memory
+ * catalogue) follow the change log as with any other change.
+ */
+@Service
+public class ParkingBatchServiceImpl implements ParkingBatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParkingBatchServiceImpl.class);
+    private static final int BATCH_SIZE = 500;
+
+    private static final String DELETE_RATINGS = "delete from parking_ratings where parking_id = ?";
+    private static final String DELETE_PARKING = "delete from parkings where id = ?";
+    private static final String UPDATE_PARKING =
+            "update parkings set name = ?, city = ?, address = ?, latitude = ?, longitude = ?, rating = ?, "
+                    + "version = ?, updated_at = ? where id = ?";
+
+    private final ParkingRepository parkingRepository;
+    private final ParkingChangeRepository parkingChangeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DuplicateDetector duplicateDetector;
+    private final SecondLevelCacheInvalidator secondLevelCacheInvalidator;
+    private final int maxMutations;
+
+    public ParkingBatchServiceImpl(ParkingRepository parkingRepository,
+                                   ParkingChangeRepository parkingChangeRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   DuplicateDetector duplicateDetector,
+                                   SecondLevelCacheInvalidator secondLevelCacheInvalidator,
+                                   @Value("${parking.batch.max-mutations:10000}") int maxMutations) {
+        this.parkingRepository = parkingRepository;
+        this.parkingChangeRepository = parkingChangeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.duplicateDetector = duplicateDetector;
+        this.secondLevelCacheInvalidator = secondLevelCacheInvalidator;
+        this.maxMutations = maxMutations;
+    }
+
+    /**
+     * Applies the edits and deletes in their order
+     * @param mutations the items of the batch
+     * @return the outcome of every item
+     * @throws InvalidBatchException if the batch is empty or too large
+     */
+    @Override
+    public ParkingBatchResult apply(List<ParkingMutation> mutations) {
+
+        if (mutations == null || mutations.isEmpty()) {
+            throw new InvalidBatchException("there are no mutations");
+        }
+        if (mutations.size() > maxMutations) {
+            throw new InvalidBatchException(String.format("%d mutations, at most %d are allowed", mutations.size(), maxMutations));
+        }
+
+        // a duplicate of a parking which is deleted in the same batch is not a duplicate
+        Set<Long> deleted = new HashSet<>();
+        for (ParkingMutation mutation : mutations) {
+            if (mutation != null && mutation.getAction() == MutationAction.DELETE && mutation.getId() != null) {
+                deleted.add(mutation.getId());
+            }
+        }
+
+        DuplicateDetector.BatchCheck duplicates = this.duplicateDetector.startBatch(deleted);
+        ParkingMutationResult[] results = new ParkingMutationResult[mutations.size()];
+        List<ParkingChange> changes = new ArrayList<>();
+        for (int from = 0; from < mutations.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, mutations.size());
+            Chunk chunk = new Chunk(mutations, from, to, results);
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(chunk, duplicates));
+                changes.addAll(chunk.changes);
+            } catch (RuntimeException exception) {
+                LOGGER.warn("Writing the mutations {} to {} failed, they were rolled back", from, to - 1, exception);
+                duplicates.forget(chunk.edited);
+                chunk.fail(exception);
+            }
+        }
+        if (!changes.isEmpty()) {
+            this.secondLevelCacheInvalidator.onParkingChanges(changes);
+        }
+
+        int applied = 0;
+        for (ParkingMutationResult result : results) {
+            if (result.getStatus() == MutationStatus.APPLIED) {
+                applied++;
+            }
+        }
+        return new ParkingBatchResult(applied, results.length - applied, Arrays.asList(results));
+    }
+
+    /**
+     * Writes one chunk of the batch in the current transaction.
+     * The items of the chunk are merged first, so a parking edited more than once
+     * is updated with one statement and a parking edited and then deleted is only deleted.
+     */
+    private void write(Chunk chunk, DuplicateDetector.BatchCheck duplicates) {
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = chunk.from; i < chunk.to; i++) {
+            ParkingMutation mutation = chunk.mutations.get(i);
+            String problem = validate(mutation);
+            if (problem != null) {
+                chunk.result(i, MutationStatus.INVALID, problem);
+            } else {
+                ids.add(mutation.getId());
+            }
+        }
+
+        Map<Long, ParkingSummary> current = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (ParkingSummary parking : this.parkingRepository.findSummariesByIdIn(ids)) {
+                current.put(parking.getId(), parking);
+            }
+        }
+
+        Map<Long, ParkingSummary> edited = new LinkedHashMap<>();
+        Set<Long> removed = new LinkedHashSet<>();
+        for (int i = chunk.from; i < chunk.to; i++) {
+            if (chunk.results[i] != null) {
+                continue;
+            }
+            ParkingMutation mutation = chunk.mutations.get(i);
+            Long id = mutation.getId();
+            ParkingSummary parking = current.get(id);
+            if (parking == null) {
+                chunk.result(i, MutationStatus.NOT_FOUND, String.format("Parking with id %d does not exist", id));
+                continue;
+            }
+
+            if (mutation.getAction() == MutationAction.DELETE) {
+                current.remove(id);
+                edited.remove(id);
+                removed.add(id);
+                chunk.applied(i, id);
+                continue;
+            }
+
+            ParkingSummary merged = merge(parking, mutation);
+            Optional<ParkingSummary> duplicate =
+                    duplicates.findDuplicateOf(id, merged.getName(), merged.getLatitude(), merged.getLongitude());
+            if (duplicate.isPresent()) {
+                chunk.result(i, MutationStatus.DUPLICATE, String.format(
+                        "Parking %s looks like a duplicate of the parking %s (id %d) at the same place",
+                        merged.getName(), duplicate.get().getName(), duplicate.get().getId()));
+                continue;
+            }
+            current.put(id, merged);
+            edited.put(id, merged);
+            duplicates.accept(merged);
+            chunk.edited.add(id);
+            chunk.applied(i, id);
+        }
+
+        List<ParkingChange> changes = new ArrayList<>();
+        for (Long id : removed) {
+            changes.add(new ParkingChange(id, ChangeType.DELETED));
+        }
+        for (Long id : edited.keySet()) {
+            changes.add(new ParkingChange(id, ChangeType.UPDATED));
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        changes = this.parkingChangeRepository.saveAll(changes);
+
+        List<Object[]> deletes = new ArrayList<>();
+        for (Long id : removed) {
+            deletes.add(new Object[]{id});
+        }
+        this.jdbcTemplate.batchUpdate(DELETE_RATINGS, deletes);
+        this.jdbcTemplate.batchUpdate(DELETE_PARKING, deletes);
+
+        // the version of an edited parking is the id of its change log entry
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> updates = new ArrayList<>();
+        for (ParkingChange change : changes) {
+            if (change.getType() == ChangeType.UPDATED) {
+                ParkingSummary parking = edited.get(change.getParkingId());
+                updates.add(new Object[]{parking.getName(), parking.getCity(), parking.getAddress(),
+                        parking.getLatitude(), parking.getLongitude(), parking.getRating(),
+                        change.getId(), now, parking.getId()});
+            }
+        }
+        this.jdbcTemplate.batchUpdate(UPDATE_PARKING, updates);
+        chunk.changes.addAll(changes);
+    }
+
+    /**
+     * @return why the item can not be applied, null if it is valid
+     */
+    private static String validate(ParkingMutation mutation) {
+
+        if (mutation == null || mutation.getAction() == null) {
+            return "The action is missing";
+        }
+        if (mutation.getId() == null) {
+            return "The id is missing";
+        }
+        if (mutation.getAction() == MutationAction.EDIT) {
+            if (mutation.getName() != null && mutation.getName().trim().isEmpty()) {
+                return "The name can not be empty";
+            }
+            if (mutation.getLatitude() != null && (mutation.getLatitude() < -90 || mutation.getLatitude() > 90)) {
+                return String.format("Latitude %s is out of range", mutation.getLatitude());
+            }
+            if (mutation.getLongitude() != null && (mutation.getLongitude() < -180 || mutation.getLongitude() > 180)) {
+                return String.format("Longitude %s is out of range", mutation.getLongitude());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the parking with the fields which are set in the edit
+     */
+    private static ParkingSummary merge(ParkingSummary parking, ParkingMutation edit) {
+        return new ParkingSummary(parking.getId(),
+                edit.getName() != null ? edit.getName() : parking.getName(),
+                edit.getCity() != null ? edit.getCity() : parking.getCity(),
+                edit.getAddress() != null ? edit.getAddress() : parking.getAddress(),
+                edit.getLatitude() != null ? edit.getLatitude() : parking.getLatitude(),
+                edit.getLongitude() != null ? edit.getLongitude() : parking.getLongitude(),
+                edit.getRating() != null ? edit.getRating() : parking.getRating(),
+                parking.getMapUrl(), parking.getRatingScore(), parking.getRatingCount());
+    }
+
+    /**
+     * The items from..to (exclusive) of the batch and their outcomes
+     */
+    private static class Chunk {
+        private final List<ParkingMutation> mutations;
+        private final int from;
+        private final int to;
+        private final ParkingMutationResult[] results;
+        private final List<ParkingChange> changes = new ArrayList<>();
+        private final Set<Long> edited = new HashSet<>();
+
+        private Chunk(List<ParkingMutation> mutations, int from, int to, ParkingMutationResult[] results) {
+            this.mutations = mutations;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        private void applied(int index, Long id) {
+            results[index] = new ParkingMutationResult(index, id, mutations.get(index).getAction(), MutationStatus.APPLIED, null);
+        }
+
+        private void result(int index, MutationStatus status, String message) {
+            ParkingMutation mutation = mutations.get(index);
+            results[index] = new ParkingMutationResult(index, mutation != null ? mutation.getId() : null,
+                    mutation != null ? mutation.getAction() : null, status, message);
+        }
+
+        /**
+         * The transaction was rolled back, nothing of the chunk was applied
+         */
+        private void fail(RuntimeException exception) {
+            for (int i = from; i < to; i++) {
+                if (results[i] == null || results[i].getStatus() == MutationStatus.APPLIED) {
+                    result(i, MutationStatus.FAILED, exception.getMessage());
+                }
+            }
+            changes.clear();
+        }
+    }
+}
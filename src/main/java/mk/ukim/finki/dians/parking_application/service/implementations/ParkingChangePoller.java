@@ -0,0 +1,174 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.repository.ParkingChangeRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the parking change log and passes the new entries
+ * to all of the ParkingChangeListener beans of this node.
+ * <p>
+ * Ids of the log are assigned when a row is inserted, but transactions can
+ * commit in a different order, so a skipped id may still appear later.
+ * Such gaps are remembered and looked up again until they show up
+ * or until the gap timeout passes (the transaction was rolled back).
+ * <p>
+ * A listener which fails gets its changes again with the next poll, together
+ * with the newer ones (only the last change of every parking is kept for it),
+ * until it succeeds, the other listeners are not held back.
+ */
+@Component
+public class ParkingChangePoller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParkingChangePoller.class);
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_GAP = 1000;
+
+    private final ParkingChangeRepository changeRepository;
+    private final ObjectProvider<ParkingChangeListener> listeners;
+    private final Duration gapTimeout;
+    private final Duration retention;
+
+    private long lastSeenId;
+    private final Map<Long, Long> gaps = new HashMap<>();
+    // the changes of the listeners which failed, by parking id
+    private final Map<ParkingChangeListener, Map<Long, ParkingChange>> retries = new HashMap<>();
+
+    public ParkingChangePoller(ParkingChangeRepository changeRepository,
+                               ObjectProvider<ParkingChangeListener> listeners,
+                               @Value("${parking.changes.gap-timeout:30s}") Duration gapTimeout,
+                               @Value("${parking.changes.retention:7d}") Duration retention) {
+        this.changeRepository = changeRepository;
+        this.listeners = listeners;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+    }
+
+    /**
+     * The local caches are empty when the node starts,
+     * so only the changes made after the start are followed.
+     * The ids just below the last one may belong to transactions which have not
+     * committed yet, so the missing ids among the last MAX_GAP ids are remembered
+     * as gaps, the same as during a poll.
+     */
+    @PostConstruct
+    public synchronized void init() {
+        long lastId = this.changeRepository.findLastId();
+        lastSeenId = Math.max(0, lastId - MAX_GAP);
+        long now = System.currentTimeMillis();
+        for (Long id : this.changeRepository.findIdsBetween(lastSeenId, lastId)) {
+            advanceTo(id, now);
+        }
+    }
+
+    /**
+     * Reads the new entries of the change log and notifies the listeners.
+     * Runs in a read-only transaction, so with replicas it reads from one of them
+     * and not from the primary. The listeners read the changed parkings in the same
+     * transaction, from the same replica, which has them once it has their log entries.
+     */
+    @Scheduled(fixedDelayString = "${parking.changes.poll-interval:1000}")
+    @Transactional(readOnly = true)
+    public synchronized void poll() {
+
+        List<ParkingChange> changes = new ArrayList<>();
+        if (!gaps.isEmpty()) {
+            List<ParkingChange> found = this.changeRepository.findAllByIdIn(gaps.keySet());
+            found.forEach(change -> gaps.remove(change.getId()));
+            changes.addAll(found);
+            long now = System.currentTimeMillis();
+            gaps.values().removeIf(since -> now - since > gapTimeout.toMillis());
+        }
+
+        List<ParkingChange> batch;
+        do {
+            batch = this.changeRepository.findTop500ByIdGreaterThanOrderById(lastSeenId);
+            long now = System.currentTimeMillis();
+            for (ParkingChange change : batch) {
+                advanceTo(change.getId(), now);
+            }
+            changes.addAll(batch);
+        } while (batch.size() == BATCH_SIZE);
+
+        if (!changes.isEmpty() || !retries.isEmpty()) {
+            publish(changes);
+        }
+    }
+
+    /**
+     * Moves the cursor to a seen id, the skipped ids become gaps
+     */
+    private void advanceTo(long id, long now) {
+        for (long missing = Math.max(lastSeenId + 1, id - MAX_GAP); missing < id; missing++) {
+            gaps.put(missing, now);
+        }
+        lastSeenId = id;
+    }
+
+    private void publish(List<ParkingChange> changes) {
+        listeners.orderedStream().forEach(listener -> {
+            Map<Long, ParkingChange> pending = retries.get(listener);
+            List<ParkingChange> delivered = changes;
+            if (pending != null) {
+                keepLast(pending, changes);
+                delivered = new ArrayList<>(pending.values());
+            }
+            if (delivered.isEmpty()) {
+                return;
+            }
+            try {
+                listener.onParkingChanges(delivered);
+                retries.remove(listener);
+            } catch (RuntimeException exception) {
+                LOGGER.error("Parking change listener {} failed, its {} changes are delivered again with the next poll",
+                        listener.getClass().getSimpleName(), delivered.size(), exception);
+                if (pending == null) {
+                    keepLast(retries.computeIfAbsent(listener, key -> new LinkedHashMap<>()), changes);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds the changes to the pending ones, a parking keeps only its last change,
+     * moved to the end so the pending changes stay in the order of the log
+     */
+    private static void keepLast(Map<Long, ParkingChange> pending, List<ParkingChange> changes) {
+        for (ParkingChange change : changes) {
+            pending.remove(change.getParkingId());
+            pending.put(change.getParkingId(), change);
+        }
+    }
+
+    /**
+     * Removes the change log entries older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${parking.changes.cleanup-interval:3600000}")
+    @Transactional
+    public void cleanup() {
+        this.changeRepository.deleteAllChangedBefore(LocalDateTime.now().minus(retention));
+    }
+
+    /**
+     * @return id of the newest change log entry this node has seen
+     */
+    public synchronized long getLastSeenId() {
+        return lastSeenId;
+    }
+}
@@ -0,0 +1,253 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.ParkingRating;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidArgumentsException;
+import mk.ukim.finki.dians.parking_application.model.exceptions.ParkingNotFoundException;
+import mk.ukim.finki.dians.parking_application.repository.ParkingChangeRepository;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRatingRepository;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingRatingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Class which implements the ParkingRatingService interface.
+ * Dependency injections - ParkingRepository, ParkingRatingRepository,
+ * ParkingChangeRepository, JdbcTemplate and the transaction manager.
+ * <p>
+ * Ratings are not written one by one: they are collected in memory, where
+ * a user rating the same parking again before the next flush only replaces the
+ * pending value, and are written periodically in JDBC batches. The aggregates
+ * of every rated parking are updated with one incremental statement
+ * (count + n, sum + delta, new Bayesian score), so nothing is ever recomputed
+ * over all of the ratings and the sort by rating stays a plain column sort.
+ * <p>
+ * The previous ratings of a chunk are read with a row lock and a new rating
+ * of a user is inserted against a unique constraint, so the flushes of two
+ * nodes never apply the same delta twice (the one which fails is retried).
+ * <p>
+ * The Bayesian score is (priorWeight * priorMean + sum) / (priorWeight + count),
+ * so a parking with a few ratings is pulled towards the prior mean.
+ */
+@Service
+public class ParkingRatingServiceImpl implements ParkingRatingService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParkingRatingServiceImpl.class);
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_RATING =
+            "insert into parking_ratings (parking_id, username, stars, rated_at) values (?, ?, ?, ?)";
+    private static final String UPDATE_RATING =
+            "update parking_ratings set stars = ?, rated_at = ? where id = ?";
+    private static final String UPDATE_AGGREGATES =
+            "update parkings set rating_count = coalesce(rating_count, 0) + ?, rating_sum = coalesce(rating_sum, 0) + ?, "
+                    + "rating_score = (cast(? as double precision) + coalesce(rating_sum, 0) + ?) "
+                    + "/ (cast(? as double precision) + coalesce(rating_count, 0) + ?) where id = ?";
+    private static final String UPDATE_VERSION =
+            "update parkings set version = ?, updated_at = ? where id = ?";
+
+    private final ParkingRepository parkingRepository;
+    private final ParkingRatingRepository parkingRatingRepository;
+    private final ParkingChangeRepository parkingChangeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double priorMean;
+    private final double priorWeight;
+    private final int maxPending;
+
+    private final Object lock = new Object();
+    private Map<RatingKey, Integer> pending = new LinkedHashMap<>();
+
+    public ParkingRatingServiceImpl(ParkingRepository parkingRepository,
+                                    ParkingRatingRepository parkingRatingRepository,
+                                    ParkingChangeRepository parkingChangeRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${parking.ratings.prior-mean:3}") double priorMean,
+                                    @Value("${parking.ratings.prior-weight:5}") double priorWeight,
+                                    @Value("${parking.ratings.max-pending:100000}") int maxPending) {
+        this.parkingRepository = parkingRepository;
+        this.parkingRatingRepository = parkingRatingRepository;
+        this.parkingChangeRepository = parkingChangeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.priorMean = priorMean;
+        this.priorWeight = priorWeight;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Records the rating of a user, it is written with the next flush
+     * @param parkingId id of the rated parking
+     * @param username the user who rates
+     * @param stars the rating, from 1 to 5
+     */
+    @Override
+    public void rate(Long parkingId, String username, int stars) {
+
+        if (stars < 1 || stars > 5 || username == null || username.isEmpty()) {
+            throw new InvalidArgumentsException();
+        }
+        if (!this.parkingRepository.existsById(parkingId)) {
+            throw new ParkingNotFoundException(parkingId);
+        }
+
+        boolean full;
+        synchronized (lock) {
+            pending.put(new RatingKey(parkingId, username), stars);
+            full = pending.size() >= maxPending;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the pending ratings and the new aggregates of the rated parkings.
+     * If the batch fails it is kept for the next flush,
+     * without replacing the ratings given in the meantime.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${parking.ratings.flush-interval:5000}")
+    public synchronized void flush() {
+
+        Map<RatingKey, Integer> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        List<Map.Entry<RatingKey, Integer>> entries = new ArrayList<>(batch.entrySet());
+        for (int from = 0; from < entries.size(); from += BATCH_SIZE) {
+            List<Map.Entry<RatingKey, Integer>> chunk = entries.subList(from, Math.min(from + BATCH_SIZE, entries.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(chunk));
+            } catch (RuntimeException exception) {
+                LOGGER.warn("Writing {} ratings failed, they are kept for the next flush", chunk.size(), exception);
+                synchronized (lock) {
+                    chunk.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Writes one chunk of ratings in the current transaction
+     * @param chunk the ratings, at most one per user and parking
+     */
+    private void write(List<Map.Entry<RatingKey, Integer>> chunk) {
+
+        Set<Long> parkingIds = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        for (Map.Entry<RatingKey, Integer> entry : chunk) {
+            parkingIds.add(entry.getKey().parkingId);
+            usernames.add(entry.getKey().username);
+        }
+
+        Map<RatingKey, ParkingRating> existing = new HashMap<>();
+        for (ParkingRating rating : this.parkingRatingRepository.findAllByParkingIdInAndUsernameIn(parkingIds, usernames)) {
+            existing.put(new RatingKey(rating.getParkingId(), rating.getUsername()), rating);
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        Map<Long, long[]> deltas = new LinkedHashMap<>();
+
+        for (Map.Entry<RatingKey, Integer> entry : chunk) {
+            RatingKey key = entry.getKey();
+            int stars = entry.getValue();
+            ParkingRating previous = existing.get(key);
+            long[] delta = deltas.computeIfAbsent(key.parkingId, id -> new long[2]);
+
+            if (previous == null) {
+                inserts.add(new Object[]{key.parkingId, key.username, stars, now});
+                delta[0]++;
+                delta[1] += stars;
+            } else if (previous.getStars() != stars) {
+                updates.add(new Object[]{stars, now, previous.getId()});
+                delta[1] += stars - previous.getStars();
+            }
+        }
+        deltas.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+
+        this.jdbcTemplate.batchUpdate(INSERT_RATING, inserts);
+        this.jdbcTemplate.batchUpdate(UPDATE_RATING, updates);
+
+        List<Object[]> aggregates = new ArrayList<>();
+        List<Long> rated = new ArrayList<>(deltas.keySet());
+        for (Long parkingId : rated) {
+            long[] delta = deltas.get(parkingId);
+            aggregates.add(new Object[]{delta[0], delta[1], priorWeight * priorMean, delta[1], priorWeight, delta[0], parkingId});
+        }
+        int[] updated = this.jdbcTemplate.batchUpdate(UPDATE_AGGREGATES, aggregates);
+
+        List<ParkingChange> changes = new ArrayList<>();
+        for (int i = 0; i < rated.size(); i++) {
+            if (updated[i] == 0) {
+                // the parking was deleted after it was rated
+                this.parkingRatingRepository.deleteAllByParkingId(rated.get(i));
+            } else {
+                changes.add(new ParkingChange(rated.get(i), ChangeType.UPDATED));
+            }
+        }
+        // the aggregates were changed past Hibernate, the change log
+        // makes every node (this one included) evict the cached parkings
+        List<Object[]> versions = new ArrayList<>();
+        for (ParkingChange change : this.parkingChangeRepository.saveAll(changes)) {
+            versions.add(new Object[]{change.getId(), now, change.getParkingId()});
+        }
+        this.jdbcTemplate.batchUpdate(UPDATE_VERSION, versions);
+    }
+
+    private static class RatingKey {
+        private final Long parkingId;
+        private final String username;
+
+        private RatingKey(Long parkingId, String username) {
+            this.parkingId = parkingId;
+            this.username = username;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RatingKey)) {
+                return false;
+            }
+            RatingKey key = (RatingKey) other;
+            return parkingId.equals(key.parkingId) && username.equals(key.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parkingId, username);
+        }
+    }
+}
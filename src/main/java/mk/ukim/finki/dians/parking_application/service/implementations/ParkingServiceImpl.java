@@ -1,38 +1,124 @@
 package mk.ukim.finki.dians.parking_application.service.implementations;
 
+import mk.ukim.finki.dians.parking_application.cache.NearbyParkingCache;
+import mk.ukim.finki.dians.parking_application.catalogue.ParkingCatalogue;
+import mk.ukim.finki.dians.parking_application.catalogue.RouteCorridor;
+import mk.ukim.finki.dians.parking_application.dedup.DuplicateDetector;
 import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.DuplicateParkings;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingOnRoute;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingViewport;
+import mk.ukim.finki.dians.parking_application.model.dto.Place;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.model.exceptions.DuplicateParkingException;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidRouteException;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidViewportException;
 import mk.ukim.finki.dians.parking_application.model.exceptions.ParkingNotFoundException;
+import mk.ukim.finki.dians.parking_application.ranking.ParkingRanker;
+import mk.ukim.finki.dians.parking_application.repository.ParkingChangeRepository;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRatingRepository;
 import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
 import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static mk.ukim.finki.dians.parking_application.geo.GeoUtils.haversineDistance;
+
 /**
  * Class which implements the ParkingService interface and
  * must implement all the methods from the interface.
- * Dependency injection - ParkingRepository
+ * Dependency injections - ParkingRepository, ParkingChangeRepository,
+ * ParkingRatingRepository, NearbyParkingCache, ParkingCatalogue, RouteCorridor,
+ * ParkingRanker and DuplicateDetector.
+ * A new or edited parking which duplicates an existing one is not saved,
+ * unless the admin confirms it is not a duplicate.
+ * Every change of a parking is recorded in the change log
+ * in the same transaction as the change itself, the id of the log entry
+ * becomes the version of the parking.
+ * The listings and searches run in read-only transactions and load
+ * ParkingSummary projections, so nothing is added to the persistence context.
  */
 @Service
 public class ParkingServiceImpl implements ParkingService {
 
+    private static final Sort BY_NAME = Sort.by("name");
+    private static final int DEFAULT_VIEWPORT_LIMIT = 200;
+    private static final int MAX_VIEWPORT_LIMIT = 1000;
+    private static final double DEFAULT_CORRIDOR_KM = 0.5;
+    private static final double MAX_CORRIDOR_KM = 5;
+    private static final int MAX_ROUTE_POINTS = 1000;
+
     private final ParkingRepository parkingRepository;
+    private final ParkingChangeRepository parkingChangeRepository;
+    private final ParkingRatingRepository parkingRatingRepository;
+    private final NearbyParkingCache nearbyParkingCache;
+    private final ParkingCatalogue parkingCatalogue;
+    private final RouteCorridor routeCorridor;
+    private final ParkingRanker parkingRanker;
+    private final DuplicateDetector duplicateDetector;
+    private final double placeMaxKm;
+    private final Sort byRating;
 
-    public ParkingServiceImpl(ParkingRepository parkingRepository) {
+    public ParkingServiceImpl(ParkingRepository parkingRepository,
+                              ParkingChangeRepository parkingChangeRepository,
+                              ParkingRatingRepository parkingRatingRepository,
+                              NearbyParkingCache nearbyParkingCache,
+                              ParkingCatalogue parkingCatalogue,
+                              RouteCorridor routeCorridor,
+                              ParkingRanker parkingRanker,
+                              DuplicateDetector duplicateDetector,
+                              @Value("${parking.places.max-distance-km:5}") double placeMaxKm,
+                              @Value("${parking.ratings.prior-mean:3}") double priorMean) {
         this.parkingRepository = parkingRepository;
+        this.parkingChangeRepository = parkingChangeRepository;
+        this.parkingRatingRepository = parkingRatingRepository;
+        this.nearbyParkingCache = nearbyParkingCache;
+        this.parkingCatalogue = parkingCatalogue;
+        this.routeCorridor = routeCorridor;
+        this.parkingRanker = parkingRanker;
+        this.duplicateDetector = duplicateDetector;
+        this.placeMaxKm = placeMaxKm;
+        // a parking nobody has rated yet has the score of the prior mean
+        this.byRating = JpaSort.unsafe(Sort.Direction.DESC, String.format(Locale.ROOT, "coalesce(p.ratingScore, %f)", priorMean))
+                .and(BY_NAME);
     }
 
     /**
      * A method that has the logic to find all the parkings
-     * using the ParkingRepository's method findAll()
+     * using the ParkingRepository's method findAllSummaries()
      * @return a List object which contains all the parkings
      */
     @Override
-    public List<Parking> findAll() {
-        return this.parkingRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ParkingSummary> findAll() {
+        return this.parkingRepository.findAllSummaries();
+    }
+
+    /**
+     * A method which finds one page of all the parkings, in the order of their ids.
+     * The pages are found by the last id of the previous page (keyset paging),
+     * so every page costs the same, however far in the list it is.
+     * @param afterId the last id of the previous page, 0 for the first page
+     * @param size the number of parkings in the page
+     * @return the parkings with a greater id than afterId, at most size of them
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<ParkingSummary> findPageAfter(Long afterId, int size) {
+        return this.parkingRepository.findSummariesAfter(afterId, PageRequest.of(0, size));
     }
 
     /**
@@ -43,6 +129,7 @@ public class ParkingServiceImpl implements ParkingService {
      *          with id as the parameter
      */
     @Override
+    @Transactional(readOnly = true)
     public Optional<Parking> findById(Long id) {
         return this.parkingRepository.findById(id);
     }
@@ -52,21 +139,25 @@ public class ParkingServiceImpl implements ParkingService {
      * @param id the id of the parking we want to delete
      */
     @Override
+    @Transactional
     public void deleteById(Long id) {
         this.parkingRepository.deleteById(id);
+        this.parkingRatingRepository.deleteAllByParkingId(id);
+        this.parkingChangeRepository.save(new ParkingChange(id, ChangeType.DELETED));
     }
 
     /**
      * A methods used for finding all parkings located
-     * less than 3 km from our current location
+     * less than 3 km from our current location.
+     * The candidates come from the NearbyParkingCache, so only
+     * a short list is filtered and sorted by the exact distance.
      * @param currentLatitude north-south coordinate of the user's location
      * @param currentLongitude east-west coordinate of the user's location
      * @return list of parkings
      */
-    public List<Parking> findByCurrentAddress(Double currentLatitude, Double currentLongitude) {
-        return parkingRepository.findAll().stream()
-                .filter(parking ->
-                        haversineDistance(parking.getLatitude(), parking.getLongitude(), currentLatitude, currentLongitude)<3)
+    @Override
+    public List<ParkingSummary> findByCurrentAddress(Double currentLatitude, Double currentLongitude) {
+        return nearby(currentLatitude, currentLongitude).stream()
                 .sorted(Comparator.comparing(parking ->
                         haversineDistance(parking.getLatitude(), parking.getLongitude(), currentLatitude, currentLongitude)))
                 .collect(Collectors.toList());
@@ -74,35 +165,84 @@ public class ParkingServiceImpl implements ParkingService {
     }
 
     /**
-     * A method for calculating angular distance between
-     * two points on the surface of a sphere, using Math class.
-     * @param latitude1 latitude of the first parking's location
-     * @param longitude1 longitude of the first parking's location
-     * @param latitude2 latitude of the second parking's location
-     * @param longitude2 longitude of the first parking's location
-     * @return distance between two parkings
+     * Method which finds the parkings inside a map viewport,
+     * answered from the in-memory ParkingCatalogue
+     * @param minLatitude south border of the viewport
+     * @param minLongitude west border of the viewport
+     * @param maxLatitude north border of the viewport
+     * @param maxLongitude east border of the viewport
+     * @param limit maximum number of parkings (default 200, at most 1000),
+     *              dense areas are thinned above it
+     * @return the parkings inside the viewport and their total number
+     */
+    @Override
+    public ParkingViewport findInViewport(Double minLatitude, Double minLongitude, Double maxLatitude, Double maxLongitude, Integer limit) {
+
+        if (minLatitude == null || minLongitude == null || maxLatitude == null || maxLongitude == null
+                || minLatitude > maxLatitude || minLongitude > maxLongitude
+                || minLatitude < -90 || maxLatitude > 90 || minLongitude < -180 || maxLongitude > 180) {
+            throw new InvalidViewportException(
+                    minLatitude == null ? Double.NaN : minLatitude, minLongitude == null ? Double.NaN : minLongitude,
+                    maxLatitude == null ? Double.NaN : maxLatitude, maxLongitude == null ? Double.NaN : maxLongitude);
+        }
+        int cappedLimit = limit == null || limit < 1 ? DEFAULT_VIEWPORT_LIMIT : Math.min(limit, MAX_VIEWPORT_LIMIT);
+        return parkingCatalogue.viewport(minLatitude, minLongitude, maxLatitude, maxLongitude, cappedLimit);
+    }
+
+    /**
+     * Method which finds the parkings along a driving route,
+     * answered from the in-memory ParkingCatalogue
+     * @param path the route as [latitude, longitude] pairs, from the start to the destination (at most 1000 points and 2000 km)
+     * @param widthKm width of the corridor on each side of the route
+     *                (default 0.5 km, at most 5 km)
+     * @return the parkings inside the corridor, in the order the driver passes them
      */
-    private static double haversineDistance(Double latitude1, Double longitude1, Double latitude2, Double longitude2) {
-        final double R = 6371.0088; // Earth's radius Km
-        Double latitudeDistance = toRad(latitude2 - latitude1);
-        Double longitudeDistance = toRad(longitude2 - longitude1);
+    @Override
+    public List<ParkingOnRoute> findAlongRoute(List<double[]> path, Double widthKm) {
 
-        Double a = Math.sin(latitudeDistance / 2) * Math.sin(latitudeDistance / 2) +
-                Math.cos(toRad(latitude1)) * Math.cos(toRad(latitude2)) *
-                        Math.sin(longitudeDistance / 2) * Math.sin(longitudeDistance / 2);
-        Double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        if (path == null || path.isEmpty() || path.size() > MAX_ROUTE_POINTS) {
+            throw new InvalidRouteException(String.format("%d points, expected 1 to %d",
+                    path == null ? 0 : path.size(), MAX_ROUTE_POINTS));
+        }
+        for (double[] point : path) {
+            if (point == null || point.length != 2 || Math.abs(point[0]) > 90 || Math.abs(point[1]) > 180) {
+                throw new InvalidRouteException("every point must be a [latitude, longitude] pair");
+            }
+        }
+        if (widthKm != null && (widthKm <= 0 || widthKm > MAX_CORRIDOR_KM)) {
+            throw new InvalidRouteException(String.format("corridor width %f km, expected up to %f km", widthKm, MAX_CORRIDOR_KM));
+        }
+        return routeCorridor.search(path, widthKm == null ? DEFAULT_CORRIDOR_KM : widthKm);
+    }
 
-        Double distance = R * c; //distance in kilometers
-        return distance;
+    /**
+     * Method which tells where a location is (reverse geocoding) without
+     * any external service: the city and the address of the closest parking
+     * in the in-memory ParkingCatalogue
+     * @param latitude north-south coordinate of the location
+     * @param longitude east-west coordinate of the location
+     * @return the place, empty if there is no parking within 5 km
+     */
+    @Override
+    public Optional<Place> findPlace(Double latitude, Double longitude) {
+
+        if (latitude == null || longitude == null || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            return Optional.empty();
+        }
+        return parkingCatalogue.nearest(latitude, longitude, placeMaxKm)
+                .map(parking -> new Place(parking.getCity(), parking.getAddress(),
+                        haversineDistance(latitude, longitude, parking.getLatitude(), parking.getLongitude())));
     }
 
     /**
-     * Conversion from degrees to radians using math function
-     * @param value
-     * @return the value in radians
+     * Method which scans all the parkings for duplicates:
+     * parkings close to each other with similar names
+     * @return the pairs of duplicates, the closest first
      */
-    private static Double toRad(Double value) {
-        return value * Math.PI / 180;
+    @Override
+    @Transactional(readOnly = true)
+    public List<DuplicateParkings> findDuplicates() {
+        return duplicateDetector.findAll();
     }
 
     /**
@@ -110,39 +250,89 @@ public class ParkingServiceImpl implements ParkingService {
      * @param city the city where we search
      * @param address the address of the parking(s)
      * @param sort show some specific results first
-     *             (ex. by an alphabetical order)
+     *             (ex. by an alphabetical order or by the users' rating),
+     *             the relevance sort is done by findRanked
      * @return list of parkings
      */
     @Override
-    public List<Parking> findAllByCityOrAndAddressSorted(String city, String address, String sort) {
+    @Transactional(readOnly = true)
+    public List<ParkingSummary> findAllByCityOrAndAddressSorted(String city, String address, String sort) {
 
-        List<Parking> parkingResults = null;
-        if(sort==null){
-            sort="name";
+        return search(city, address, sort == null || sort.equals("name") ? BY_NAME : byRating);
+    }
+
+    /**
+     * Method which finds the most relevant parkings, ranked by a blend
+     * of the distance from the user, the rating and the text match
+     * @param city the city where we search, may be empty
+     * @param address the address of the parking(s), may be empty
+     * @param latitude north-south coordinate of the user's location, may be null
+     * @param longitude east-west coordinate of the user's location, may be null
+     * @return list of at most K parkings, the most relevant first
+     */
+    @Override
+    public List<ParkingSummary> findRanked(String city, String address, Double latitude, Double longitude) {
+        return rank(city, address, latitude, longitude);
+    }
+
+    /**
+     * The candidates are the text matches, or the parkings around the user
+     * if there is no text, they are found in the in-memory ParkingCatalogue
+     * (or the NearbyParkingCache) without sorting because only the top K of them are selected
+     */
+    private List<ParkingSummary> rank(String city, String address, Double latitude, Double longitude) {
+
+        List<ParkingSummary> candidates;
+        if (!city.isEmpty() || !address.isEmpty()) {
+            candidates = parkingCatalogue.search(city, address);
+        } else if (latitude != null && longitude != null) {
+            candidates = nearby(latitude, longitude);
+        } else {
+            return Collections.emptyList();
         }
+        return parkingRanker.rank(candidates, city, address, latitude, longitude);
+    }
+
+    /**
+     * The cached candidates of the location's cell which are within the search radius
+     */
+    private List<ParkingSummary> nearby(double latitude, double longitude) {
+        double radiusKm = nearbyParkingCache.getRadiusKm();
+        return nearbyParkingCache.candidates(latitude, longitude).stream()
+                .filter(parking -> haversineDistance(parking.getLatitude(), parking.getLongitude(), latitude, longitude) < radiusKm)
+                .collect(Collectors.toList());
+    }
+
+    private List<ParkingSummary> search(String city, String address, Sort order) {
+
+        List<ParkingSummary> parkingResults = null;
 
         if (!city.isEmpty() && !address.isEmpty()) {
 
-            parkingResults = sort.equals("name")
-                    ? parkingRepository.findAllByAddressIgnoreCaseContainsAndCityIgnoreCaseContainsOrderByName(address,city)
-                    : parkingRepository.findAllByAddressIgnoreCaseContainsAndCityIgnoreCaseContainsOrderByRatingDesc(address,city);
+            parkingResults = parkingRepository.findSummariesByAddressAndCity(likeTerm(address), likeTerm(city), order);
 
         } else if (!city.isEmpty()) {
 
-            parkingResults = sort.equals("name")
-                    ? parkingRepository.findAllByCityIgnoreCaseContainsOrderByName(city)
-                    : parkingRepository.findAllByCityIgnoreCaseContainsOrderByRatingDesc(city);
+            parkingResults = parkingRepository.findSummariesByCity(likeTerm(city), order);
 
         } else if (!address.isEmpty()) {
 
-            parkingResults = sort.equals("name")
-                    ? parkingRepository.findAllByAddressIgnoreCaseContainsOrderByName(address)
-                    : parkingRepository.findAllByAddressIgnoreCaseContainsOrderByRatingDesc(address);
+            parkingResults = parkingRepository.findSummariesByAddress(likeTerm(address), order);
         }
 
         return parkingResults;
     }
 
+    /**
+     * Escapes the LIKE wildcards of a search term, so that it is matched
+     * literally, the same as in ParkingCatalogue.search
+     * @param term the term typed by the user
+     * @return the term with \, % and _ escaped by a backslash
+     */
+    private static String likeTerm(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     /**
      * Creating a new parking
      * @param name name of the parking
@@ -151,13 +341,23 @@ public class ParkingServiceImpl implements ParkingService {
      * @param latitude geographic north-south coordinate
      * @param longitude geographic east-west coordinate
      * @param rating rating of the parking (if it's known)
+     * @param allowDuplicate true if the admin confirmed that the parking is not
+     *                       a duplicate of the similar parking at the same place
      * @return object of the Optional class which is a result from
      *         the ParkingRepository method save()
      */
     @Override
-    public Optional<Parking> save(String name, String city, String address, Double latitude, Double longitude, String rating) {
+    @Transactional
+    public Optional<Parking> save(String name, String city, String address, Double latitude, Double longitude, String rating,
+                                  boolean allowDuplicate) {
 
-        return Optional.of(this.parkingRepository.save(new Parking(name, city, address, latitude, longitude, rating)));
+        if (!allowDuplicate) {
+            checkDuplicate(null, name, latitude, longitude);
+        }
+        Parking parking = this.parkingRepository.save(new Parking(name, city, address, latitude, longitude, rating));
+        ParkingChange change = this.parkingChangeRepository.save(new ParkingChange(parking.getId(), ChangeType.CREATED));
+        parking.setVersion(change.getId());
+        return Optional.of(parking);
     }
 
     /**
@@ -169,13 +369,20 @@ public class ParkingServiceImpl implements ParkingService {
      * @param latitude geographic north-south coordinate
      * @param longitude geographic east-west coordinate
      * @param rating rating of the parking
+     * @param allowDuplicate true if the admin confirmed that the parking is not
+     *                       a duplicate of the similar parking at the same place
      * @return object of the Optional class which is a result from
      *         the ParkingRepository method save()
      */
     @Override
-    public Optional<Parking> edit(Long id, String name, String city, String address, Double latitude, Double longitude, String rating) {
+    @Transactional
+    public Optional<Parking> edit(Long id, String name, String city, String address, Double latitude, Double longitude, String rating,
+                                  boolean allowDuplicate) {
 
         Parking parking = this.parkingRepository.findById(id).orElseThrow(() -> new ParkingNotFoundException(id));
+        if (!allowDuplicate) {
+            checkDuplicate(id, name, latitude, longitude);
+        }
 
         parking.setName(name);
         parking.setCity(city);
@@ -184,7 +391,14 @@ public class ParkingServiceImpl implements ParkingService {
         parking.setLongitude(longitude);
         parking.setRating(rating);
 
+        ParkingChange change = this.parkingChangeRepository.save(new ParkingChange(id, ChangeType.UPDATED));
+        parking.setVersion(change.getId());
         return Optional.of(this.parkingRepository.save(parking));
     }
 
+    private void checkDuplicate(Long id, String name, Double latitude, Double longitude) {
+        duplicateDetector.findDuplicateOf(id, name, latitude, longitude).ifPresent(existing -> {
+            throw new DuplicateParkingException(name, existing.getName(), existing.getId());
+        });
+    }
 }
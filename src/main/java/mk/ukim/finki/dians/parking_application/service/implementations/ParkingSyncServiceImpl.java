@@ -0,0 +1,117 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingChanges;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.repository.ParkingChangeRepository;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingSyncService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class which implements the ParkingSyncService interface.
+ * Dependency injections - ParkingRepository and ParkingChangeRepository.
+ * <p>
+ * The version of the catalogue is the id of the last entry of the parking
+ * change log, so the changes since a version are read from the log and only
+ * the parkings changed since then are loaded. DELETED entries are the tombstones.
+ * A client whose version is older than the retention of the log gets the whole
+ * catalogue again (reset).
+ * <p>
+ * Ids of the log can commit out of order: the changes are returned only up to
+ * a missing id which may still be committed (younger than the gap timeout),
+ * so the client never skips a change. The same holds for the version of a reset.
+ * A page stopped by such a gap has more=false, the client gets the rest with
+ * its next regular sync instead of asking again right away.
+ */
+@Service
+public class ParkingSyncServiceImpl implements ParkingSyncService {
+
+    private final ParkingRepository parkingRepository;
+    private final ParkingChangeRepository parkingChangeRepository;
+    private final Duration gapTimeout;
+
+    public ParkingSyncServiceImpl(ParkingRepository parkingRepository,
+                                  ParkingChangeRepository parkingChangeRepository,
+                                  @Value("${parking.changes.gap-timeout:30s}") Duration gapTimeout) {
+        this.parkingRepository = parkingRepository;
+        this.parkingChangeRepository = parkingChangeRepository;
+        this.gapTimeout = gapTimeout;
+    }
+
+    /**
+     * Finds the changes of the catalogue since the version the client has
+     * @param version version the client has, negative if it has nothing stored
+     * @return the changes, or the whole catalogue if the version is too old
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ParkingChanges findChangesSince(long version) {
+
+        Long firstId = this.parkingChangeRepository.findFirstId();
+        long lastId = this.parkingChangeRepository.findLastId();
+        LocalDateTime gapDeadline = LocalDateTime.now().minus(gapTimeout);
+
+        if (version < 0 || version > lastId || (firstId != null && version < firstId - 1)) {
+            long resetVersion = resetVersion(firstId, gapDeadline);
+            return new ParkingChanges(resetVersion, true, false, this.parkingRepository.findAllSummaries(), Collections.emptyList());
+        }
+
+        List<ParkingChange> changes = this.parkingChangeRepository.findTop1000ByIdGreaterThanOrderById(version);
+        boolean more = changes.size() == 1000;
+
+        // the last change of every parking decides if it is an upsert or a delete
+        Map<Long, ChangeType> lastChanges = new LinkedHashMap<>();
+        long newVersion = version;
+        for (ParkingChange change : changes) {
+            if (change.getId() != newVersion + 1 && change.getChangedAt().isAfter(gapDeadline)) {
+                more = false;
+                break;
+            }
+            lastChanges.put(change.getParkingId(), change.getType());
+            newVersion = change.getId();
+        }
+
+        List<Long> upserted = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        lastChanges.forEach((parkingId, type) -> (type == ChangeType.DELETED ? deletes : upserted).add(parkingId));
+
+        List<ParkingSummary> upserts = upserted.isEmpty()
+                ? Collections.emptyList()
+                : this.parkingRepository.findSummariesByIdIn(upserted);
+
+        return new ParkingChanges(newVersion, false, more, upserts, deletes);
+    }
+
+    /**
+     * Method which finds the version of a reset: the last id of the log
+     * before the first missing id which may still be committed. The changes
+     * after it are sent again with the next sync, which does no harm.
+     * @param firstId first id of the log, null if the log is empty
+     * @param gapDeadline missing ids of changes older than this are not waited for
+     * @return the version of the whole catalogue read now
+     */
+    private long resetVersion(Long firstId, LocalDateTime gapDeadline) {
+
+        Long lastOldId = this.parkingChangeRepository.findLastIdChangedBefore(gapDeadline);
+        long resetVersion = lastOldId != null ? lastOldId : (firstId != null ? firstId - 1 : 0);
+        for (Long id : this.parkingChangeRepository.findIdsChangedAfter(resetVersion, gapDeadline)) {
+            if (id != resetVersion + 1) {
+                break;
+            }
+            resetVersion = id;
+        }
+        return resetVersion;
+    }
+}
@@ -0,0 +1,119 @@
+package mk.ukim.finki.dians.parking_application.service.implementations;
+
+import mk.ukim.finki.dians.parking_application.analytics.SearchAnalytics;
+import mk.ukim.finki.dians.parking_application.model.dto.TopSearch;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+import mk.ukim.finki.dians.parking_application.repository.SearchStatRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import mk.ukim.finki.dians.parking_application.service.SearchAnalyticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Class which implements the SearchAnalyticsService interface.
+ * Dependency injections - SearchAnalytics, which counts the searches in the background,
+ * SearchStatRepository and ParkingService.
+ * <p>
+ * The report only includes the windows which have been written,
+ * the searches of the last window and flush interval are not in it yet.
+ */
+@Service
+public class SearchAnalyticsServiceImpl implements SearchAnalyticsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchAnalyticsServiceImpl.class);
+    private static final int MAX_LIMIT = 100;
+
+    private final SearchAnalytics searchAnalytics;
+    private final SearchStatRepository searchStatRepository;
+    private final ParkingService parkingService;
+    private final int prewarmTop;
+    private final Duration prewarmPeriod;
+    private final Duration retention;
+
+    public SearchAnalyticsServiceImpl(SearchAnalytics searchAnalytics,
+                                      SearchStatRepository searchStatRepository,
+                                      ParkingService parkingService,
+                                      @Value("${parking.analytics.prewarm.top:20}") int prewarmTop,
+                                      @Value("${parking.analytics.prewarm.period:24h}") Duration prewarmPeriod,
+                                      @Value("${parking.analytics.retention:90d}") Duration retention) {
+        this.searchAnalytics = searchAnalytics;
+        this.searchStatRepository = searchStatRepository;
+        this.parkingService = parkingService;
+        this.prewarmTop = prewarmTop;
+        this.prewarmPeriod = prewarmPeriod;
+        this.retention = retention;
+    }
+
+    /**
+     * Records a search by city and/or address, it is counted in the background
+     * @param city the city which was searched for
+     * @param address the address which was searched for
+     * @param found whether any parking was found
+     */
+    @Override
+    public void recordSearch(String city, String address, boolean found) {
+        searchAnalytics.record(city, address, found ? SearchOutcome.FOUND : SearchOutcome.NOT_FOUND);
+    }
+
+    /**
+     * Method which finds the most frequent searches
+     * @param outcome the searches which found parkings, or those which did not
+     * @param period how far back to look
+     * @param limit maximum number of searches (at most 100)
+     * @return the searches, the most frequent first
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TopSearch> findTopSearches(SearchOutcome outcome, Duration period, int limit) {
+        int cappedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return searchStatRepository.findTopSearches(outcome, LocalDateTime.now().minus(period), PageRequest.of(0, cappedLimit));
+    }
+
+    /**
+     * Runs the most frequent successful searches of the last period once the
+     * application is ready (after the local data is seeded), so the first users
+     * after a start find their results in the query cache
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void prewarm() {
+
+        if (prewarmTop <= 0) {
+            return;
+        }
+        List<TopSearch> searches = findTopSearches(SearchOutcome.FOUND, prewarmPeriod, prewarmTop);
+        for (TopSearch search : searches) {
+            if (search.getCity().isEmpty() && search.getAddress().isEmpty()) {
+                continue;
+            }
+            try {
+                parkingService.findAllByCityOrAndAddressSorted(search.getCity(), search.getAddress(), "name");
+            } catch (RuntimeException exception) {
+                LOGGER.warn("Prewarming the search {} / {} failed", search.getCity(), search.getAddress(), exception);
+            }
+        }
+        LOGGER.info("Prewarmed the query cache with {} searches", searches.size());
+    }
+
+    /**
+     * Removes the search counts older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${parking.analytics.cleanup-interval:3600000}")
+    @Transactional
+    public void cleanup() {
+        this.searchStatRepository.deleteAllWindowsBefore(LocalDateTime.now().minus(retention));
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.stream.Stream;
 
@@ -44,6 +45,7 @@ public class UserServiceImpl implements UserService {
      * @return object as a result from the userRepository.save(user) method
      */
     @Override
+    @Transactional
     public User register(String username, String password, String repeatedPassword, String name, String surname) {
 
         if (Stream.of(username, password, repeatedPassword, name, surname).anyMatch(str -> str == null || str.isEmpty())) {
@@ -61,6 +63,33 @@ public class UserServiceImpl implements UserService {
         return userRepository.save(user);
     }
 
+    /**
+     * Method which finds the token epoch of a user,
+     * only the authentication tokens issued in this epoch are accepted
+     * @param username user's username
+     * @return the token epoch, 0 if the user never logged out or does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long findTokenEpoch(String username) {
+
+        return userRepository.findTokenEpoch(username).orElse(0L);
+    }
+
+    /**
+     * Method which starts a new token epoch of a user,
+     * so all of the authentication tokens issued to the user until now are rejected
+     * @param username user's username
+     * @return the new token epoch
+     */
+    @Override
+    @Transactional
+    public long revokeTokens(String username) {
+
+        userRepository.increaseTokenEpoch(username);
+        return userRepository.findTokenEpoch(username).orElse(0L);
+    }
+
     /**
      * Method from the UserDetailsService interface
      * Loads the user by the username given as a parameter
@@ -69,6 +98,7 @@ public class UserServiceImpl implements UserService {
      * @throws Exception if the username isn't found
      */
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
         return userRepository.findByUsername(username)
@@ -1,12 +1,24 @@
 package mk.ukim.finki.dians.parking_application.web.controller;
 
 import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.exceptions.DuplicateParkingException;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.service.ParkingCursor;
+import mk.ukim.finki.dians.parking_application.service.ParkingRatingService;
 import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import mk.ukim.finki.dians.parking_application.service.SearchAnalyticsService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.Principal;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,28 +26,38 @@ import java.util.Optional;
  * MVC Controller that handles the user's requests which are
  * parking-related.
  * The controller is mapped to the "/parking" path.
- * Dependency injections - ParkingService
+ * Dependency injections - ParkingService, ParkingRatingService, SearchAnalyticsService
  */
 @Controller
 @RequestMapping("/parking")
 public class ParkingController {
+    private static final int STREAM_PAGE_SIZE = 100;
+
     private final ParkingService parkingService;
+    private final ParkingRatingService parkingRatingService;
+    private final SearchAnalyticsService searchAnalyticsService;
 
-    public ParkingController(ParkingService parkingService) {
+    public ParkingController(ParkingService parkingService, ParkingRatingService parkingRatingService,
+                             SearchAnalyticsService searchAnalyticsService) {
         this.parkingService = parkingService;
+        this.parkingRatingService = parkingRatingService;
+        this.searchAnalyticsService = searchAnalyticsService;
     }
 
     /**
      * Locating a parking by using some of the options
      * mapped on "/parking/locate"
      *
+     * @param city  the city filled in the search form, if known
+     *              (ex. the city of the user's location on the results page)
      * @param model object from the Model class which makes
      *              parameters accessible to the view page
      * @return html view of the locate page
      */
     @GetMapping("/locate")
-    public String getLocatePage(Model model) {
+    public String getLocatePage(@RequestParam(required = false) String city, Model model) {
 
+        model.addAttribute("city", city);
         model.addAttribute("bodyContent", "locate");
         return "master-template";
     }
@@ -47,6 +69,8 @@ public class ParkingController {
      * @param city    the city where the user looks for a parking
      * @param address the address where the user looks for a parking
      * @param sort    the sort option the user chose
+     * @param coordinates latitude+longitude of the user's location, if known,
+     *                used by the relevance sort
      * @param model   object from the Model class which makes
      *                parameters accessible to the view page
      * @return html view of the locate page with an error message
@@ -58,25 +82,38 @@ public class ParkingController {
     public String searchParking(@RequestParam(required = false) String city,
                                 @RequestParam(required = false) String address,
                                 @RequestParam(required = false) String sort,
+                                @RequestParam(required = false) String coordinates,
                                 Model model) {
 
         if (city.isEmpty() && address.isEmpty()) {
             model.addAttribute("hasError", true);
             model.addAttribute("error", "You must fill at least one field in order to search by city/address");
             model.addAttribute("currentLocation", "");
+            model.addAttribute("city", city);
             model.addAttribute("bodyContent", "locate");
             return "master-template";
         }
 
-        List<Parking> parkingResults;
-        parkingResults = parkingService.findAllByCityOrAndAddressSorted(city, address, sort);
+        List<ParkingSummary> parkingResults;
+        double[] location = parseCoordinates(coordinates);
+        if ("relevance".equals(sort)) {
+            parkingResults = location != null
+                    ? parkingService.findRanked(city, address, location[0], location[1])
+                    : parkingService.findRanked(city, address, null, null);
+        } else {
+            parkingResults = parkingService.findAllByCityOrAndAddressSorted(city, address, sort);
+        }
+        searchAnalyticsService.recordSearch(city, address, !parkingResults.isEmpty());
 
         if (parkingResults.isEmpty()) {
             return "notfoundparking";
         }
 
         model.addAttribute("parking", parkingResults);
-        model.addAttribute("currentLocation", "");
+        model.addAttribute("currentLocation", "relevance".equals(sort) ? "Sorted by relevance" : "");
+        if (location != null) {
+            parkingService.findPlace(location[0], location[1]).ifPresent(place -> model.addAttribute("place", place));
+        }
 
         model.addAttribute("bodyContent", "results");
         return "master-template";
@@ -87,13 +124,17 @@ public class ParkingController {
      * and mapped on "/parking/current-location"
      *
      * @param coordinates latitude+longitude of the user's location
+     * @param sort        "relevance" to rank by distance and rating,
+     *                    otherwise the results are sorted by distance
      * @param model       object from the Model class which makes
      *                    parameters accessible to the view page
      * @return html view of the results page if the locating was successful
      * or an adequate html view if there are no parkings found
      */
     @GetMapping("/current-location")
-    public String getCurrentLocationPage(@RequestParam String coordinates, Model model) {
+    public String getCurrentLocationPage(@RequestParam String coordinates,
+                                         @RequestParam(required = false) String sort,
+                                         Model model) {
 
         if (coordinates.equals("")) {
 
@@ -104,30 +145,41 @@ public class ParkingController {
         String[] coords = coordinates.split(" ");
         double latitude = Double.parseDouble(coords[0]);
         double longitude = Double.parseDouble(coords[1]);
-        List<Parking> parkingResults;
-        parkingResults = parkingService.findByCurrentAddress(latitude, longitude);
+        boolean relevance = "relevance".equals(sort);
+        List<ParkingSummary> parkingResults;
+        parkingResults = relevance
+                ? parkingService.findRanked("", "", latitude, longitude)
+                : parkingService.findByCurrentAddress(latitude, longitude);
 
         if (parkingResults.isEmpty()) {
             return "notfoundparking";
         }
 
         model.addAttribute("parking", parkingResults);
-        model.addAttribute("currentLocation", "Sorted by shortest distance");
+        model.addAttribute("currentLocation", relevance ? "Sorted by relevance" : "Sorted by shortest distance");
+        parkingService.findPlace(latitude, longitude).ifPresent(place -> model.addAttribute("place", place));
         model.addAttribute("bodyContent", "results");
         return "master-template";
     }
 
     /**
-     * Response to a GET request for the page with all of the parkings
+     * Response to a GET request for the page with all of the parkings.
+     * The page is streamed: the parkings are read in pages while the page
+     * is rendered and what has been rendered is sent before the next page is read,
+     * so the first bytes leave early and only one page is in memory.
+     * Thymeleaf writes to the response while rendering (the Spring Boot default),
+     * the ParkingCursor flushes it between the pages. Open-in-view is off, so a slow
+     * client does not hold a database connection while the response is sent.
      *
-     * @param model object from the Model class which makes
-     *              parameters accessible to the view page
+     * @param model    object from the Model class which makes
+     *                 parameters accessible to the view page
+     * @param response the response, flushed between the pages
      * @return html view of the parking page
      */
     @GetMapping("/all-parkings")
-    public String getParkingPage(Model model) {
+    public String getParkingPage(Model model, HttpServletResponse response) {
 
-        List<Parking> allParkings = parkingService.findAll();
+        ParkingCursor allParkings = new ParkingCursor(parkingService, STREAM_PAGE_SIZE, () -> flush(response));
         model.addAttribute("parking", allParkings);
         model.addAttribute("bodyContent", "all-parkings");
         return "master-template";
@@ -197,7 +249,12 @@ public class ParkingController {
      * @param latitude  geographic north-south coordinate
      * @param longitude geographic east-west coordinate
      * @param rating    rating of the parking (if it's known)
-     * @return redirect to the parking page
+     * @param allowDuplicate true if the admin confirmed that the parking
+     *                  is not a duplicate of the one it was reported as
+     * @param model     object from the Model class which makes
+     *                  parameters accessible to the view page
+     * @return redirect to the parking page, or the add form with an error message
+     * if the parking duplicates an existing one
      */
     @PostMapping("/add")
     public String saveParking(
@@ -207,14 +264,108 @@ public class ParkingController {
             @RequestParam String address,
             @RequestParam Double latitude,
             @RequestParam Double longitude,
-            @RequestParam String rating) {
+            @RequestParam String rating,
+            @RequestParam(defaultValue = "false") boolean allowDuplicate,
+            Model model) {
 
-        if (id != null) {
-            this.parkingService.edit(id, name, city, address, latitude, longitude, rating);
-        } else {
-            this.parkingService.save(name, city, address, latitude, longitude, rating);
+        try {
+            if (id != null) {
+                this.parkingService.edit(id, name, city, address, latitude, longitude, rating, allowDuplicate);
+            } else {
+                this.parkingService.save(name, city, address, latitude, longitude, rating, allowDuplicate);
+            }
+        } catch (DuplicateParkingException exception) {
+            Parking parking = new Parking(name, city, address, latitude, longitude, rating);
+            parking.setId(id);
+            model.addAttribute("parking", parking);
+            model.addAttribute("hasError", true);
+            model.addAttribute("error", exception.getMessage());
+            model.addAttribute("duplicate", true);
+            model.addAttribute("bodyContent", "add-parking");
+            return "master-template";
         }
         return "redirect:/parking/all-parkings";
     }
-}
 
+    /**
+     * POST request to rate a parking, sent by a logged in user.
+     * The rating is applied to the parking's score with a short delay.
+     *
+     * @param id        id of the rated parking
+     * @param stars     the rating, from 1 to 5
+     * @param principal the logged in user
+     * @param request   the request, its referer is the page the user came from
+     * @return redirect back to the page with the parking
+     */
+    @PostMapping("/rate/{id}")
+    public String rateParking(@PathVariable Long id,
+                              @RequestParam int stars,
+                              Principal principal,
+                              HttpServletRequest request) {
+
+        this.parkingRatingService.rate(id, principal.getName(), stars);
+
+        String page = refererPage(request);
+        return "redirect:" + (page != null ? page : "/parking/all-parkings");
+    }
+
+    /**
+     * @param request the request
+     * @return path and query of the referer if it is a page of this site
+     * which can be redirected to, otherwise null
+     */
+    private static String refererPage(HttpServletRequest request) {
+
+        String referer = request.getHeader("Referer");
+        if (referer == null) {
+            return null;
+        }
+        URI page;
+        try {
+            page = new URI(referer);
+        } catch (URISyntaxException exception) {
+            return null;
+        }
+        String path = page.getRawPath();
+        boolean sameOrigin = request.getServerName().equalsIgnoreCase(page.getHost())
+                && request.getServerPort() == port(page);
+        // a path starting with // would be a redirect to another host,
+        // and the search results are a POST response and cannot be redirected to
+        if (!sameOrigin || path == null || !path.startsWith("/") || path.startsWith("//")
+                || path.startsWith("/parking/result")) {
+            return null;
+        }
+        return path + (page.getRawQuery() != null ? "?" + page.getRawQuery() : "");
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private static void flush(HttpServletResponse response) {
+        try {
+            response.flushBuffer();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * @param coordinates latitude and longitude separated by a space
+     * @return latitude and longitude, or null if they are missing or invalid
+     */
+    private static double[] parseCoordinates(String coordinates) {
+        if (coordinates == null || coordinates.trim().isEmpty()) {
+            return null;
+        }
+        String[] coords = coordinates.trim().split(" ");
+        try {
+            return new double[]{Double.parseDouble(coords[0]), Double.parseDouble(coords[1])};
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException exception) {
+            return null;
+        }
+    }
+}
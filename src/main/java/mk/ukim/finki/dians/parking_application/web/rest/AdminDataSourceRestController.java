@@ -0,0 +1,36 @@
+package mk.ukim.finki.dians.parking_application.web.rest;
+
+import mk.ukim.finki.dians.parking_application.config.ReadWriteRoutingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * REST Controller with the statistics of the primary and replica connection pools.
+ * Available only when the read/write routing is enabled.
+ * The controller is mapped to the "/admin/datasource" path (admins only).
+ */
+@RestController
+@RequestMapping("/admin/datasource")
+@ConditionalOnProperty(name = "parking.datasource.routing.enabled", havingValue = "true")
+public class AdminDataSourceRestController {
+
+    private final ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+    public AdminDataSourceRestController(DataSource dataSource) throws SQLException {
+        this.readWriteRoutingDataSource = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+    }
+
+    /**
+     * @return statistics of every connection pool, keyed by the pool name
+     */
+    @GetMapping
+    public Map<String, Map<String, Object>> getPoolStatistics() {
+        return readWriteRoutingDataSource.getStatistics();
+    }
+}
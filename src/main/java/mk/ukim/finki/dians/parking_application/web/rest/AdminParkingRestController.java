@@ -0,0 +1,82 @@
+package mk.ukim.finki.dians.parking_application.web.rest;
+
+import mk.ukim.finki.dians.parking_application.model.dto.DuplicateParkings;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingBatch;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingBatchResult;
+import mk.ukim.finki.dians.parking_application.model.dto.TopSearch;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+import mk.ukim.finki.dians.parking_application.service.ParkingBatchService;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import mk.ukim.finki.dians.parking_application.service.SearchAnalyticsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * REST Controller with the maintenance jobs of the catalogue.
+ * The controller is mapped to the "/admin/api/parkings" path,
+ * only an admin is authorized to use it.
+ * Dependency injections - ParkingService, ParkingBatchService, SearchAnalyticsService
+ */
+@RestController
+@RequestMapping("/admin/api/parkings")
+public class AdminParkingRestController {
+
+    private final ParkingService parkingService;
+    private final ParkingBatchService parkingBatchService;
+    private final SearchAnalyticsService searchAnalyticsService;
+
+    public AdminParkingRestController(ParkingService parkingService, ParkingBatchService parkingBatchService,
+                                      SearchAnalyticsService searchAnalyticsService) {
+        this.parkingService = parkingService;
+        this.parkingBatchService = parkingBatchService;
+        this.searchAnalyticsService = searchAnalyticsService;
+    }
+
+    /**
+     * GET request which scans the whole catalogue for duplicates,
+     * mapped on "/admin/api/parkings/duplicates"
+     *
+     * @return the pairs of parkings which are probably the same place
+     */
+    @GetMapping("/duplicates")
+    public List<DuplicateParkings> getDuplicates() {
+        return this.parkingService.findDuplicates();
+    }
+
+    /**
+     * POST request which edits and deletes many parkings at once,
+     * mapped on "/admin/api/parkings/batch".
+     * An edit changes only the fields which are set.
+     *
+     * @param batch the edits and deletes, applied in their order
+     * @return the outcome of every item of the batch
+     */
+    @PostMapping("/batch")
+    public ParkingBatchResult applyBatch(@RequestBody ParkingBatch batch) {
+        return this.parkingBatchService.apply(batch.getMutations());
+    }
+
+    /**
+     * GET request for the most frequent searches by city and address,
+     * mapped on "/admin/api/parkings/top-searches".
+     * The searches which found nothing show where parkings are missing.
+     *
+     * @param outcome FOUND or NOT_FOUND
+     * @param hours   how many hours back to look
+     * @param limit   maximum number of searches (at most 100)
+     * @return the searches, the most frequent first
+     */
+    @GetMapping("/top-searches")
+    public List<TopSearch> getTopSearches(@RequestParam(defaultValue = "NOT_FOUND") SearchOutcome outcome,
+                                          @RequestParam(defaultValue = "24") long hours,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        return this.searchAnalyticsService.findTopSearches(outcome, Duration.ofHours(hours), limit);
+    }
+}
@@ -0,0 +1,59 @@
+package mk.ukim.finki.dians.parking_application.web.rest;
+
+import mk.ukim.finki.dians.parking_application.model.dto.HeatmapTile;
+import mk.ukim.finki.dians.parking_application.service.HeatmapService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST Controller for the parking density overlay of the map.
+ * The controller is mapped to the "/api/heatmap" path.
+ * Dependency injections - HeatmapService
+ */
+@RestController
+@RequestMapping("/api/heatmap")
+public class HeatmapRestController {
+
+    private final HeatmapService heatmapService;
+    private final CacheControl cacheControl;
+
+    public HeatmapRestController(HeatmapService heatmapService,
+                                 @Value("${parking.heatmap.max-age:60}") long maxAgeSeconds) {
+        this.heatmapService = heatmapService;
+        this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePrivate();
+    }
+
+    /**
+     * GET request for one tile of the density map, mapped on "/api/heatmap/{zoom}/{x}/{y}".
+     * The tile can be cached for max-age seconds and revalidated with its ETag,
+     * an unchanged tile is answered with 304 Not Modified.
+     *
+     * @param zoom    zoom level of the map
+     * @param x       column of the tile
+     * @param y       row of the tile
+     * @param request the request, with the ETag the client has
+     * @return the tile, or 304 if the client's copy is still valid
+     */
+    @GetMapping("/{zoom}/{x}/{y}")
+    public ResponseEntity<HeatmapTile> getTile(@PathVariable int zoom,
+                                               @PathVariable int x,
+                                               @PathVariable int y,
+                                               WebRequest request) {
+
+        HeatmapTile tile = this.heatmapService.findTile(zoom, x, y);
+        String etag = "\"" + tile.getEtag() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(tile);
+    }
+}
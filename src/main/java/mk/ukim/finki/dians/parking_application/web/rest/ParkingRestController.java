@@ -0,0 +1,78 @@
+package mk.ukim.finki.dians.parking_application.web.rest;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingOnRoute;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingViewport;
+import mk.ukim.finki.dians.parking_application.model.dto.Place;
+import mk.ukim.finki.dians.parking_application.model.dto.RouteQuery;
+import mk.ukim.finki.dians.parking_application.model.exceptions.PlaceNotFoundException;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller with the parking queries of the map clients.
+ * The controller is mapped to the "/api/parkings" path.
+ * Dependency injections - ParkingService
+ */
+@RestController
+@RequestMapping("/api/parkings")
+public class ParkingRestController {
+
+    private final ParkingService parkingService;
+
+    public ParkingRestController(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    /**
+     * GET request for the parkings inside the visible part of the map,
+     * mapped on "/api/parkings/viewport"
+     *
+     * @param minLat south border of the viewport
+     * @param minLng west border of the viewport
+     * @param maxLat north border of the viewport
+     * @param maxLng east border of the viewport
+     * @param limit  maximum number of parkings, dense areas are thinned above it
+     * @return the parkings inside the viewport
+     */
+    @GetMapping("/viewport")
+    public ParkingViewport getViewport(@RequestParam Double minLat,
+                                       @RequestParam Double minLng,
+                                       @RequestParam Double maxLat,
+                                       @RequestParam Double maxLng,
+                                       @RequestParam(required = false) Integer limit) {
+        return this.parkingService.findInViewport(minLat, minLng, maxLat, maxLng, limit);
+    }
+
+    /**
+     * GET request for the city and address of a location,
+     * mapped on "/api/parkings/place"
+     *
+     * @param latitude  north-south coordinate of the location
+     * @param longitude east-west coordinate of the location
+     * @return the city and address of the closest parking
+     */
+    @GetMapping("/place")
+    public Place getPlace(@RequestParam Double latitude, @RequestParam Double longitude) {
+        return this.parkingService.findPlace(latitude, longitude)
+                .orElseThrow(() -> new PlaceNotFoundException(latitude, longitude));
+    }
+
+    /**
+     * POST request for the parkings along a driving route,
+     * mapped on "/api/parkings/route"
+     *
+     * @param query the route as [latitude, longitude] pairs and the corridor width in km
+     * @return the parkings inside the corridor, in the order the driver passes them
+     */
+    @PostMapping("/route")
+    public List<ParkingOnRoute> getAlongRoute(@RequestBody RouteQuery query) {
+        return this.parkingService.findAlongRoute(query.getPath(), query.getWidthKm());
+    }
+}
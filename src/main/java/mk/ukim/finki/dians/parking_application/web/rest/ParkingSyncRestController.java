@@ -0,0 +1,35 @@
+package mk.ukim.finki.dians.parking_application.web.rest;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingChanges;
+import mk.ukim.finki.dians.parking_application.service.ParkingSyncService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for the offline clients which keep a copy of the catalogue.
+ * The controller is mapped to the "/api/parkings" path.
+ * Dependency injections - ParkingSyncService
+ */
+@RestController
+@RequestMapping("/api/parkings")
+public class ParkingSyncRestController {
+
+    private final ParkingSyncService parkingSyncService;
+
+    public ParkingSyncRestController(ParkingSyncService parkingSyncService) {
+        this.parkingSyncService = parkingSyncService;
+    }
+
+    /**
+     * GET request for the changes of the catalogue, mapped on "/api/parkings/changes"
+     *
+     * @param since the version the client has, missing for the whole catalogue
+     * @return the created/updated parkings, the ids of the deleted ones and the new version
+     */
+    @GetMapping("/changes")
+    public ParkingChanges getChanges(@RequestParam(defaultValue = "-1") long since) {
+        return this.parkingSyncService.findChangesSince(since);
+    }
+}
@@ -0,0 +1,59 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.config.AuthenticationTokenService;
+import mk.ukim.finki.dians.parking_application.model.enumeration.Role;
+import mk.ukim.finki.dians.parking_application.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A stateless node needs a secret, and a logout
+ * revokes every token issued to the user before.
+ */
+class AuthenticationTokenServiceTests {
+
+    private final UserService userService = mock(UserService.class);
+
+    @Test
+    void statelessModeWithoutASecretDoesNotStart() {
+
+        assertThrows(IllegalStateException.class, () -> service(true, ""));
+        assertNotNull(service(false, ""));
+    }
+
+    @Test
+    void logoutRevokesTheTokensIssuedBefore() {
+
+        AuthenticationTokenService tokenService = service(true, "secret");
+        when(userService.findTokenEpoch("user")).thenReturn(0L);
+        String token = tokenService.issue(login("user"));
+        String otherToken = tokenService.issue(login("other"));
+        assertEquals("user", tokenService.verify(token).getName());
+
+        when(userService.revokeTokens("user")).thenReturn(1L);
+        tokenService.revoke("user");
+
+        assertNull(tokenService.verify(token));
+        assertEquals("other", tokenService.verify(otherToken).getName());
+        assertEquals("user", tokenService.verify(tokenService.issue(login("user"))).getName());
+    }
+
+    private AuthenticationTokenService service(boolean stateless, String secret) {
+        return new AuthenticationTokenService(userService, stateless, secret, Duration.ofMinutes(60), 10, Duration.ofSeconds(30));
+    }
+
+    private static Authentication login(String username) {
+        return new UsernamePasswordAuthenticationToken(username, null, Collections.singletonList(Role.ROLE_USER));
+    }
+}
@@ -0,0 +1,66 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.config.ConcurrencyLimitFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTests {
+
+    @Test
+    void requestsOverTheLimitWaitAndAreRejectedAfterTheTimeout() throws Exception {
+
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(200));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> {
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                filter.doFilter(new MockHttpServletRequest("GET", "/parking/locate"), response, (request, ignored) -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                return response;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/parking/locate"), rejected, (request, response) -> {
+            });
+            assertEquals(503, rejected.getStatus());
+
+            // the static resources are not limited
+            MockHttpServletResponse image = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/images/search.gif"), image, (request, response) -> {
+            });
+            assertEquals(200, image.getStatus());
+
+            release.countDown();
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+
+            MockHttpServletResponse afterRelease = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/parking/locate"), afterRelease, (request, response) -> {
+            });
+            assertEquals(200, afterRelease.getStatus());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
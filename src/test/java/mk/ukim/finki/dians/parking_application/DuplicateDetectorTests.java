@@ -0,0 +1,107 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.catalogue.ParkingCatalogue;
+import mk.ukim.finki.dians.parking_application.dedup.DuplicateDetector;
+import mk.ukim.finki.dians.parking_application.dedup.JaroWinkler;
+import mk.ukim.finki.dians.parking_application.model.dto.DuplicateParkings;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DuplicateDetectorTests {
+
+    private final ParkingRepository parkingRepository = mock(ParkingRepository.class);
+    private DuplicateDetector duplicateDetector;
+
+    @BeforeEach
+    void setUp() {
+        when(parkingRepository.findAllSummaries()).thenReturn(Arrays.asList(
+                parking(1L, "Central Parking", 41.99600, 21.43100),
+                // 20 m away, a typo and a generic word more
+                parking(2L, "Centrall Parking Lot", 41.99615, 21.43110),
+                // same name, 2 km away
+                parking(3L, "Central Parking", 42.01400, 21.43100),
+                // different numbers at the same place
+                parking(4L, "Garage 1", 41.98000, 21.45000),
+                parking(5L, "Garage 2", 41.98001, 21.45001),
+                // different names at the same place
+                parking(6L, "Ramstore Mall", 41.99601, 21.43101)));
+        duplicateDetector = new DuplicateDetector(parkingRepository, new ParkingCatalogue(parkingRepository, 0.01, 2), 75, 0.88);
+    }
+
+    @Test
+    void jaroWinklerMatchesTheReferenceValues() {
+        assertEquals(0.961, JaroWinkler.similarity("martha", "marhta"), 0.001);
+        assertEquals(0.840, JaroWinkler.similarity("dwayne", "duane"), 0.001);
+        assertEquals(1.0, JaroWinkler.similarity("skopje", "skopje"));
+        assertEquals(0.0, JaroWinkler.similarity("abc", "xyz"));
+    }
+
+    @Test
+    void scanFindsOnlyCloseParkingsWithSimilarNames() {
+
+        List<DuplicateParkings> duplicates = duplicateDetector.findAll();
+
+        assertEquals(1, duplicates.size());
+        assertEquals(1L, duplicates.get(0).getFirst().getId());
+        assertEquals(2L, duplicates.get(0).getSecond().getId());
+        assertTrue(duplicates.get(0).getDistanceMeters() < 25);
+    }
+
+    @Test
+    void batchItemIsCheckedAgainstTheCatalogue() {
+
+        DuplicateDetector.BatchCheck batch = duplicateDetector.startBatch(Collections.emptySet());
+        assertEquals(1L, batch.findDuplicateOf(null, "Central parking!", 41.99605, 21.43102).get().getId());
+        assertFalse(batch.findDuplicateOf(null, "Garage 3", 41.98000, 21.45000).isPresent());
+        // an edited parking is not a duplicate of itself
+        assertEquals(2L, batch.findDuplicateOf(1L, "Central Parking", 41.99600, 21.43100).get().getId());
+        assertFalse(batch.findDuplicateOf(6L, "Ramstore Mall", 41.99601, 21.43101).isPresent());
+    }
+
+    @Test
+    void batchItemIsCheckedAgainstTheItemsAcceptedBefore() {
+
+        DuplicateDetector.BatchCheck batch = duplicateDetector.startBatch(Collections.singleton(2L));
+        // 2 is deleted in the batch, 1 moved away
+        batch.accept(parking(1L, "Central Parking", 41.90000, 21.40000));
+        assertFalse(batch.findDuplicateOf(null, "Central Parking", 41.99605, 21.43102).isPresent());
+
+        // 6 renamed and moved earlier in the batch, the catalogue still has it at the old place
+        batch.accept(parking(6L, "Garage 3", 41.98000, 21.45000));
+        assertEquals(6L, batch.findDuplicateOf(4L, "Garage 3", 41.98001, 21.45001).get().getId());
+        assertEquals(1L, batch.findDuplicateOf(null, "Central Parking", 41.90001, 21.40001).get().getId());
+
+        batch.forget(Collections.singleton(6L));
+        assertFalse(batch.findDuplicateOf(4L, "Garage 3", 41.98001, 21.45001).isPresent());
+    }
+
+    @Test
+    void savedParkingIsCheckedAgainstTheDatabase() {
+
+        // saved a moment ago, the catalogue does not have it yet
+        when(parkingRepository.findSummariesInBox(anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(Arrays.asList(parking(7L, "Vero Center", 41.99000, 21.44000),
+                        parking(8L, "Vero Center", 41.99002, 21.44002)));
+
+        assertFalse(duplicateDetector.startBatch(Collections.emptySet()).findDuplicateOf(null, "Vero Center", 41.99001, 21.44001).isPresent());
+        assertEquals(7L, duplicateDetector.findDuplicateOf(null, "Vero center", 41.99000, 21.44000).get().getId());
+        assertEquals(8L, duplicateDetector.findDuplicateOf(7L, "Vero Center", 41.99000, 21.44000).get().getId());
+    }
+
+    private static ParkingSummary parking(Long id, String name, double latitude, double longitude) {
+        return new ParkingSummary(id, name, "Skopje", "Partizanska", latitude, longitude, null, null, null, null);
+    }
+}
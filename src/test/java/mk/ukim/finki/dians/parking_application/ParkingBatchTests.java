@@ -0,0 +1,164 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingBatchResult;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingMutation;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingMutationResult;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationAction;
+import mk.ukim.finki.dians.parking_application.model.enumeration.MutationStatus;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidBatchException;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingBatchService;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The admin batch applies the valid items, reports every item
+ * and leaves no stale parking in the second-level cache.
+ */
+@SpringBootTest(properties = {"parking.seed.parkings=30", "parking.batch.max-mutations=100"})
+@ActiveProfiles("local")
+class ParkingBatchTests {
+
+    @Autowired
+    private ParkingBatchService parkingBatchService;
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private ParkingRepository parkingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchAppliesTheValidItemsAndReportsEveryItem() {
+
+        List<ParkingSummary> parkings = parkingService.findAll();
+        ParkingSummary edited = parkings.get(0);
+        ParkingSummary deleted = parkings.get(1);
+        ParkingSummary editedThenDeleted = parkings.get(2);
+        // loads the parking into the second-level cache
+        parkingRepository.findById(edited.getId());
+
+        ParkingMutation rename = edit(edited.getId());
+        rename.setName("Batch Renamed Parking");
+        ParkingMutation outOfRange = edit(parkings.get(3).getId());
+        outOfRange.setLatitude(91.0);
+        ParkingMutation missingAction = new ParkingMutation();
+        missingAction.setId(parkings.get(4).getId());
+
+        ParkingBatchResult result = parkingBatchService.apply(Arrays.asList(
+                rename,
+                delete(deleted.getId()),
+                edit(editedThenDeleted.getId()),
+                delete(editedThenDeleted.getId()),
+                delete(Long.MAX_VALUE),
+                outOfRange,
+                missingAction));
+
+        assertEquals(4, result.getApplied());
+        assertEquals(3, result.getRejected());
+        assertEquals(Arrays.asList(MutationStatus.APPLIED, MutationStatus.APPLIED, MutationStatus.APPLIED,
+                        MutationStatus.APPLIED, MutationStatus.NOT_FOUND, MutationStatus.INVALID, MutationStatus.INVALID),
+                statuses(result));
+
+        Parking parking = parkingRepository.findById(edited.getId()).get();
+        assertEquals("Batch Renamed Parking", parking.getName());
+        assertEquals(edited.getCity(), parking.getCity());
+        assertEquals(edited.getLatitude(), parking.getLatitude());
+        assertEquals(count("select max(id) from parking_changes where parking_id = ? and type = 'UPDATED'", edited.getId()),
+                (long) parking.getVersion());
+
+        assertFalse(parkingRepository.findById(deleted.getId()).isPresent());
+        assertFalse(parkingRepository.findById(editedThenDeleted.getId()).isPresent());
+        assertEquals(1, count("select count(*) from parking_changes where parking_id = ? and type = 'DELETED'", deleted.getId()));
+        assertEquals(0, count("select count(*) from parking_changes where parking_id = ? and type = 'UPDATED'", editedThenDeleted.getId()));
+    }
+
+    @Test
+    void editWhichDuplicatesAnotherParkingIsRejected() {
+
+        List<ParkingSummary> parkings = parkingService.findAll();
+        ParkingSummary original = parkings.get(parkings.size() - 1);
+        ParkingSummary copy = parkings.get(parkings.size() - 2);
+
+        ParkingMutation move = edit(copy.getId());
+        move.setName(original.getName());
+        move.setLatitude(original.getLatitude());
+        move.setLongitude(original.getLongitude());
+
+        ParkingBatchResult result = parkingBatchService.apply(Collections.singletonList(move));
+
+        assertEquals(Collections.singletonList(MutationStatus.DUPLICATE), statuses(result));
+        assertEquals(copy.getName(), parkingRepository.findById(copy.getId()).get().getName());
+    }
+
+    @Test
+    void editWhichDuplicatesAnEarlierEditOfTheBatchIsRejected() {
+
+        List<ParkingSummary> parkings = parkingService.findAll();
+        ParkingSummary first = parkings.get(parkings.size() - 3);
+        ParkingSummary second = parkings.get(parkings.size() - 4);
+
+        // both are moved to the same empty place, the catalogue has neither there
+        ParkingMutation moveFirst = edit(first.getId());
+        moveFirst.setName("Batch Meeting Point");
+        moveFirst.setLatitude(40.5);
+        moveFirst.setLongitude(20.5);
+        ParkingMutation moveSecond = edit(second.getId());
+        moveSecond.setName("Batch Meeting Point");
+        moveSecond.setLatitude(40.5);
+        moveSecond.setLongitude(20.5);
+
+        ParkingBatchResult result = parkingBatchService.apply(Arrays.asList(moveFirst, moveSecond));
+
+        assertEquals(Arrays.asList(MutationStatus.APPLIED, MutationStatus.DUPLICATE), statuses(result));
+        assertEquals(second.getName(), parkingRepository.findById(second.getId()).get().getName());
+    }
+
+    @Test
+    void emptyAndTooLargeBatchesAreRejected() {
+
+        assertThrows(InvalidBatchException.class, () -> parkingBatchService.apply(Collections.emptyList()));
+        assertThrows(InvalidBatchException.class,
+                () -> parkingBatchService.apply(Collections.nCopies(101, delete(Long.MAX_VALUE))));
+    }
+
+    private static ParkingMutation edit(Long id) {
+        ParkingMutation mutation = new ParkingMutation();
+        mutation.setAction(MutationAction.EDIT);
+        mutation.setId(id);
+        return mutation;
+    }
+
+    private static ParkingMutation delete(Long id) {
+        ParkingMutation mutation = new ParkingMutation();
+        mutation.setAction(MutationAction.DELETE);
+        mutation.setId(id);
+        return mutation;
+    }
+
+    private static List<MutationStatus> statuses(ParkingBatchResult result) {
+        return result.getResults().stream().map(ParkingMutationResult::getStatus).collect(Collectors.toList());
+    }
+
+    private long count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
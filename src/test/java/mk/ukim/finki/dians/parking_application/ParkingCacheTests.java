@@ -0,0 +1,97 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import mk.ukim.finki.dians.parking_application.service.implementations.ParkingChangePoller;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Repeated lookups of parkings have to be answered from the
+ * second-level and query cache, without any JDBC statement.
+ */
+@SpringBootTest(properties = "parking.seed.parkings=50")
+@ActiveProfiles("local")
+class ParkingCacheTests {
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // keeps the scheduled change log queries out of the statement counts
+    @MockBean
+    private ParkingChangePoller parkingChangePoller;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clearCaches() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedFindByIdDoesNotHitTheDatabase() {
+
+        Long id = parkingService.findAll().get(0).getId();
+        clearCaches();
+
+        parkingService.findById(id);
+        long statementsAfterFirstLookup = statistics.getPrepareStatementCount();
+        assertEquals(1, statementsAfterFirstLookup);
+
+        Parking parking = parkingService.findById(id).get();
+
+        assertEquals(id, parking.getId());
+        assertEquals(statementsAfterFirstLookup, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void repeatedSearchDoesNotHitTheDatabase() {
+
+        List<ParkingSummary> first = parkingService.findAllByCityOrAndAddressSorted("Skopje", "", "name");
+        long statementsAfterFirstSearch = statistics.getPrepareStatementCount();
+        assertTrue(statementsAfterFirstSearch > 0);
+
+        List<ParkingSummary> second = parkingService.findAllByCityOrAndAddressSorted("Skopje", "", "name");
+
+        assertFalse(first.isEmpty());
+        assertEquals(first, second);
+        assertEquals(statementsAfterFirstSearch, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void wildcardsInASearchTermAreMatchedLiterally() {
+
+        Parking parking = parkingService.save("Wildcards", "Skopje", "Ilindenska 10%_A\\", 41.99, 21.42, "4", true).get();
+
+        List<ParkingSummary> found = parkingService.findAllByCityOrAndAddressSorted("", "0%_a\\", "name");
+        List<ParkingSummary> percent = parkingService.findAllByCityOrAndAddressSorted("Skopje", "%", "name");
+        List<ParkingSummary> underscore = parkingService.findAllByCityOrAndAddressSorted("", "_", "name");
+
+        assertEquals(1, found.size());
+        assertEquals(parking.getId(), found.get(0).getId());
+        assertTrue(percent.stream().allMatch(summary -> summary.getAddress().contains("%")));
+        assertTrue(underscore.stream().allMatch(summary -> summary.getAddress().contains("_")));
+        assertTrue(percent.stream().anyMatch(summary -> summary.getId().equals(parking.getId())));
+    }
+}
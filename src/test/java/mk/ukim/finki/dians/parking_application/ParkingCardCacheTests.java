@@ -0,0 +1,116 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.cache.ParkingCardCache;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The parking cards have to be rendered once and reused,
+ * until the parking changes.
+ */
+@SpringBootTest(properties = "parking.seed.parkings=50")
+@ActiveProfiles("local")
+class ParkingCardCacheTests {
+
+    @Autowired
+    private ParkingCardCache parkingCardCache;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+        LocaleContextHolder.resetLocaleContext();
+    }
+
+    @Test
+    void cardIsReusedUntilTheParkingChanges() {
+
+        signIn("user", "ROLE_USER");
+        ParkingSummary parking = parking(900001L, "Card Parking");
+
+        String first = parkingCardCache.render(parking, true);
+        assertTrue(first.contains("Card Parking"));
+        assertSame(first, parkingCardCache.render(parking, true));
+
+        ParkingSummary renamed = parking(900001L, "Renamed Card Parking");
+        String changed = parkingCardCache.render(renamed, true);
+        assertNotSame(first, changed);
+        assertTrue(changed.contains("Renamed Card Parking"));
+        assertSame(changed, parkingCardCache.render(renamed, true));
+
+        parkingCardCache.onParkingChanges(Collections.singletonList(new ParkingChange(900001L, ChangeType.UPDATED)));
+        assertNotSame(changed, parkingCardCache.render(renamed, true));
+    }
+
+    @Test
+    void adminButtonsAreCachedAsASeparateCard() {
+
+        ParkingSummary parking = parking(900002L, "Managed Parking");
+
+        signIn("admin", "ROLE_ADMIN");
+        String adminCard = parkingCardCache.render(parking, true);
+        String adminResultCard = parkingCardCache.render(parking, false);
+
+        signIn("user", "ROLE_USER");
+        String userCard = parkingCardCache.render(parking, true);
+
+        assertTrue(adminCard.contains("/parking/edit-form/900002"));
+        assertFalse(adminResultCard.contains("/parking/edit-form/900002"));
+        assertFalse(userCard.contains("/parking/edit-form/900002"));
+        assertEquals(adminResultCard, userCard);
+    }
+
+    @Test
+    void cardIsCachedPerLocale() {
+
+        signIn("user", "ROLE_USER");
+        ParkingSummary parking = parking(900003L, "Localized Parking");
+
+        LocaleContextHolder.setLocale(Locale.US);
+        String englishCard = parkingCardCache.render(parking, false);
+        LocaleContextHolder.setLocale(Locale.GERMANY);
+        String germanCard = parkingCardCache.render(parking, false);
+
+        assertTrue(englishCard.contains("4.5 (2 ratings)"));
+        assertTrue(germanCard.contains("4,5 (2 ratings)"));
+        assertSame(germanCard, parkingCardCache.render(parking, false));
+    }
+
+    private void signIn(String username, String role) {
+        MockHttpServletRequest request = new MockHttpServletRequest(webApplicationContext.getServletContext());
+        request.addUserRole(role.substring("ROLE_".length()));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, "password", role));
+    }
+
+    private static ParkingSummary parking(Long id, String name) {
+        return new ParkingSummary(id, name, "Skopje", "Partizanska 1", 42.0, 21.43, "4",
+                "https://maps.example/" + id, 4.5, 2L);
+    }
+}
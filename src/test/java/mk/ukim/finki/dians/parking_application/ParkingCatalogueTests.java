@@ -0,0 +1,265 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.cache.NearbyParkingCache;
+import mk.ukim.finki.dians.parking_application.catalogue.ParkingCatalogue;
+import mk.ukim.finki.dians.parking_application.catalogue.RouteCorridor;
+import mk.ukim.finki.dians.parking_application.geo.GeoUtils;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingOnRoute;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingViewport;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.model.exceptions.InvalidRouteException;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ParkingCatalogueTests {
+
+    private final ParkingRepository parkingRepository = mock(ParkingRepository.class);
+    private final List<ParkingSummary> parkings = new ArrayList<>();
+    private ParkingCatalogue catalogue;
+
+    @BeforeEach
+    void loadCatalogue() {
+        Random random = new Random(11);
+        for (long id = 1; id <= 5000; id++) {
+            parkings.add(parking(id, 41.9 + random.nextDouble() * 0.2, 21.3 + random.nextDouble() * 0.2));
+        }
+        when(parkingRepository.findAllSummaries()).thenReturn(parkings);
+        catalogue = new ParkingCatalogue(parkingRepository, 0.01, 4);
+    }
+
+    @Test
+    void viewportReturnsExactlyTheParkingsInsideTheBox() {
+
+        ParkingViewport viewport = catalogue.viewport(41.95, 21.35, 41.98, 21.41, 5000);
+
+        Set<Long> expected = parkings.stream()
+                .filter(parking -> parking.getLatitude() >= 41.95 && parking.getLatitude() <= 41.98
+                        && parking.getLongitude() >= 21.35 && parking.getLongitude() <= 21.41)
+                .map(ParkingSummary::getId)
+                .collect(Collectors.toSet());
+
+        assertFalse(viewport.isThinned());
+        assertEquals(expected.size(), viewport.getTotal());
+        assertEquals(expected, viewport.getParkings().stream().map(ParkingSummary::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void denseViewportIsThinnedToTheLimit() {
+
+        ParkingViewport viewport = catalogue.viewport(41.9, 21.3, 42.1, 21.5, 100);
+
+        assertTrue(viewport.isThinned());
+        assertEquals(5000, viewport.getTotal());
+        assertTrue(viewport.getParkings().size() <= 100);
+        assertTrue(viewport.getParkings().size() > 90);
+    }
+
+    @Test
+    void changedParkingsAreMovedInTheIndex() {
+
+        catalogue.load();
+        ParkingSummary moved = parking(1L, 41.5, 21.5);
+        when(parkingRepository.findSummariesByIdIn(any())).thenReturn(Collections.singletonList(moved));
+
+        catalogue.onParkingChanges(Arrays.asList(new ParkingChange(1L, ChangeType.UPDATED), new ParkingChange(2L, ChangeType.DELETED)));
+
+        assertEquals(4999, catalogue.size());
+        assertEquals(Collections.singletonList(moved), catalogue.viewport(41.49, 21.49, 41.51, 21.51, 10).getParkings());
+    }
+
+    @Test
+    void columnStoreStaysConsistentUnderChurn() {
+
+        catalogue.load();
+        Map<Long, ParkingSummary> expected = new HashMap<>();
+        parkings.forEach(parking -> expected.put(parking.getId(), parking));
+        Random random = new Random(7);
+
+        for (int round = 0; round < 200; round++) {
+            List<ParkingChange> changes = new ArrayList<>();
+            List<ParkingSummary> current = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                long id = 1 + random.nextInt(6000);
+                if (random.nextInt(3) == 0) {
+                    changes.add(new ParkingChange(id, ChangeType.DELETED));
+                    current.removeIf(previous -> previous.getId() == id);
+                    expected.remove(id);
+                } else {
+                    ParkingSummary parking = new ParkingSummary(id, "Parking " + id + "/" + round, random.nextBoolean() ? "Skopje" : "Bitola",
+                            "Partizanska " + id, 41.9 + random.nextDouble() * 0.2, 21.3 + random.nextDouble() * 0.2,
+                            "4", null, random.nextBoolean() ? null : 4.5, (long) random.nextInt(10));
+                    changes.add(new ParkingChange(id, ChangeType.UPDATED));
+                    current.removeIf(previous -> previous.getId() == id);
+                    current.add(parking);
+                    expected.put(id, parking);
+                }
+            }
+            when(parkingRepository.findSummariesByIdIn(any())).thenReturn(current);
+            catalogue.onParkingChanges(changes);
+        }
+
+        ParkingViewport all = catalogue.viewport(41.0, 21.0, 43.0, 22.0, 100000);
+        assertEquals(expected.size(), catalogue.size());
+        assertEquals(expected.size(), all.getTotal());
+        for (ParkingSummary parking : all.getParkings()) {
+            assertEquals(expected.get(parking.getId()), parking);
+        }
+    }
+
+    @Test
+    void routeFindsTheParkingsInsideTheCorridorInTheOrderTheyArePassed() {
+
+        List<double[]> route = Arrays.asList(new double[]{42.0, 21.32}, new double[]{42.0, 21.40}, new double[]{42.0, 21.48});
+
+        List<ParkingOnRoute> found = new RouteCorridor(catalogue, 2000).search(route, 0.5);
+
+        Set<Long> foundIds = found.stream().map(hit -> hit.getParking().getId()).collect(Collectors.toSet());
+        assertEquals(found.size(), foundIds.size());
+        for (ParkingSummary parking : parkings) {
+            boolean clearlyInside = Math.abs(parking.getLatitude() - 42.0) * 111.32 < 0.49
+                    && parking.getLongitude() > 21.33 && parking.getLongitude() < 21.47;
+            if (clearlyInside) {
+                assertTrue(foundIds.contains(parking.getId()));
+            }
+        }
+        double previousLongitude = 21.32;
+        for (ParkingOnRoute hit : found) {
+            assertTrue(hit.getOffsetKm() <= 0.5);
+            // past the ends of the route everything is at the start or at the end
+            double longitude = hit.getParking().getLongitude();
+            if (longitude > 21.32 && longitude < 21.48) {
+                assertTrue(previousLongitude <= longitude + 1e-9);
+                previousLongitude = longitude;
+            }
+        }
+    }
+
+    @Test
+    void routeLongerThanTheMaximumIsRejected() {
+
+        RouteCorridor corridor = new RouteCorridor(catalogue, 10);
+        // about 6.6 km there and 6.6 km back
+        List<double[]> there = Arrays.asList(new double[]{42.0, 21.32}, new double[]{42.0, 21.40});
+        List<double[]> thereAndBack = Arrays.asList(new double[]{42.0, 21.32}, new double[]{42.0, 21.40}, new double[]{42.0, 21.32});
+
+        assertFalse(corridor.search(there, 0.5).isEmpty());
+        assertThrows(InvalidRouteException.class, () -> corridor.search(thereAndBack, 0.5));
+        // Skopje - Lisbon, thousands of pieces if it was not rejected
+        assertThrows(InvalidRouteException.class, () -> new RouteCorridor(catalogue, 2000)
+                .search(Arrays.asList(new double[]{42.0, 21.43}, new double[]{38.72, -9.14}, new double[]{42.0, 21.43}), 0.5));
+    }
+
+    @Test
+    void searchFindsTheSameParkingsAsTheLikeQueriesInEveryCityShard() {
+
+        String[] cities = {"Skopje", "Bitola", "Ohrid", "Stip", null};
+        String[] streets = {"Partizanska", "Ilindenska", "Makedonija", "Goce Delcev", null};
+        Random random = new Random(3);
+        parkings.clear();
+        for (long id = 1; id <= 3000; id++) {
+            String street = streets[random.nextInt(streets.length)];
+            parkings.add(new ParkingSummary(id, "Parking " + id, cities[random.nextInt(cities.length)],
+                    street == null ? null : street + " " + random.nextInt(200),
+                    41 + random.nextDouble(), 20.5 + random.nextDouble() * 2, "3", null, null, null));
+        }
+
+        assertEquals(5, catalogue.shardCount());
+        String[][] queries = {{"skop", ""}, {"", "partiz"}, {"o", "ilindenska 1"}, {"BITOLA", "ma"}, {"", "a"}, {"veles", ""}, {"", "xyz"}};
+        for (String[] query : queries) {
+            Set<Long> expected = parkings.stream()
+                    .filter(parking -> query[0].isEmpty() || parking.getCity() != null
+                            && parking.getCity().toUpperCase().contains(query[0].toUpperCase()))
+                    .filter(parking -> query[1].isEmpty() || parking.getAddress() != null
+                            && parking.getAddress().toUpperCase().contains(query[1].toUpperCase()))
+                    .map(ParkingSummary::getId)
+                    .collect(Collectors.toSet());
+            List<ParkingSummary> found = catalogue.search(query[0], query[1]);
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, found.stream().map(ParkingSummary::getId).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void nearbyFindsTheParkingsWithinTheRadius() {
+
+        Set<Long> expected = parkings.stream()
+                .filter(parking -> GeoUtils.haversineDistance(42.0, 21.4, parking.getLatitude(), parking.getLongitude()) < 1.5)
+                .map(ParkingSummary::getId)
+                .collect(Collectors.toSet());
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, catalogue.nearby(42.0, 21.4, 1.5).stream().map(ParkingSummary::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void nearbyCellsAreLoadedFromTheCatalogueAndEvictedByChanges() {
+
+        NearbyParkingCache cache = new NearbyParkingCache(catalogue, parkingRepository, 6, 1, 100);
+        List<ParkingSummary> cell = cache.candidates(42.0, 21.4);
+        assertTrue(cell.size() > 0);
+        // users in the same cell share the cached candidates
+        assertSame(cell, cache.candidates(42.0, 21.4));
+        Set<Long> withinRadius = parkings.stream()
+                .filter(parking -> GeoUtils.haversineDistance(42.0, 21.4, parking.getLatitude(), parking.getLongitude()) < 1)
+                .map(ParkingSummary::getId)
+                .collect(Collectors.toSet());
+        assertTrue(cell.stream().map(ParkingSummary::getId).collect(Collectors.toSet()).containsAll(withinRadius));
+
+        // the catalogue is notified first, the cell is loaded again with the moved parking
+        ParkingSummary moved = parking(1L, 42.0, 21.4);
+        when(parkingRepository.findSummariesByIdIn(any())).thenReturn(Collections.singletonList(moved));
+        List<ParkingChange> changes = Collections.singletonList(new ParkingChange(1L, ChangeType.UPDATED));
+        catalogue.onParkingChanges(changes);
+        cache.onParkingChanges(changes);
+
+        List<ParkingSummary> reloaded = cache.candidates(42.0, 21.4);
+        assertNotSame(cell, reloaded);
+        assertTrue(reloaded.contains(moved));
+    }
+
+    @Test
+    void nearestFindsTheClosestParking() {
+
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            double latitude = 41.85 + random.nextDouble() * 0.3;
+            double longitude = 21.25 + random.nextDouble() * 0.3;
+            ParkingSummary expected = parkings.stream()
+                    .min(Comparator.comparingDouble(parking ->
+                            GeoUtils.haversineDistance(latitude, longitude, parking.getLatitude(), parking.getLongitude())))
+                    .get();
+
+            assertEquals(Optional.of(expected), catalogue.nearest(latitude, longitude, 50));
+        }
+        assertEquals(Optional.empty(), catalogue.nearest(41.0, 21.4, 5));
+    }
+
+    private static ParkingSummary parking(Long id, double latitude, double longitude) {
+        return new ParkingSummary(id, "Parking " + id, "Skopje", "Partizanska " + id, latitude, longitude, "3", null, null, null);
+    }
+}
@@ -0,0 +1,87 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two application contexts ("nodes") in one JVM sharing one embedded database:
+ * changes made through one node have to reach the listeners of the other.
+ */
+class ParkingChangeLogTests {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void changesOnOneNodeReachTheOtherNode() throws InterruptedException {
+
+        ParkingService parkingServiceA = nodeA.getBean(ParkingService.class);
+        RecordingListener listenerB = nodeB.getBean(RecordingListener.class);
+
+        Parking parking = parkingServiceA.save("Test Parking", "Skopje", "Partizanska 1", 41.99, 21.42, "5", false).get();
+        parkingServiceA.edit(parking.getId(), "Test Parking", "Skopje", "Partizanska 2", 41.99, 21.42, "4", false);
+        parkingServiceA.deleteById(parking.getId());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (listenerB.changes.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        List<ChangeType> types = listenerB.changes.stream()
+                .filter(change -> change.getParkingId().equals(parking.getId()))
+                .map(ParkingChange::getType)
+                .collect(Collectors.toList());
+        assertEquals(3, types.size());
+        assertEquals(ChangeType.CREATED, types.get(0));
+        assertEquals(ChangeType.UPDATED, types.get(1));
+        assertEquals(ChangeType.DELETED, types.get(2));
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(ParkingApplication.class, RecordingListener.class)
+                .run("--spring.profiles.active=local",
+                        "--spring.datasource.url=jdbc:h2:mem:change-log-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--parking.seed.parkings=0",
+                        "--parking.changes.poll-interval=50",
+                        "--server.port=0");
+    }
+
+    @Component
+    static class RecordingListener implements ParkingChangeListener {
+
+        private final List<ParkingChange> changes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onParkingChanges(List<ParkingChange> changes) {
+            this.changes.addAll(changes);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.repository.ParkingChangeRepository;
+import mk.ukim.finki.dians.parking_application.service.ParkingChangeListener;
+import mk.ukim.finki.dians.parking_application.service.implementations.ParkingChangePoller;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The poller must not lose a change: neither one committed late
+ * with a lower id, nor one a listener failed to apply.
+ */
+class ParkingChangePollerTests {
+
+    private final ParkingChangeRepository changeRepository = mock(ParkingChangeRepository.class);
+
+    @Test
+    void failedListenerGetsItsChangesAgainWithTheNextPoll() {
+
+        when(changeRepository.findLastId()).thenReturn(0L);
+        FlakyListener failing = new FlakyListener(1);
+        FlakyListener working = new FlakyListener(0);
+        ParkingChangePoller poller = poller(failing, working);
+        poller.init();
+
+        when(changeRepository.findTop500ByIdGreaterThanOrderById(0L))
+                .thenReturn(Arrays.asList(change(1L, 10L, ChangeType.CREATED), change(2L, 11L, ChangeType.CREATED)));
+        when(changeRepository.findTop500ByIdGreaterThanOrderById(2L))
+                .thenReturn(Collections.singletonList(change(3L, 10L, ChangeType.UPDATED)));
+
+        poller.poll();
+        assertEquals(Collections.emptyList(), failing.ids());
+        assertEquals(Arrays.asList(1L, 2L), working.ids());
+
+        poller.poll();
+        // the parking 10 is delivered once, with its last change
+        assertEquals(Arrays.asList(2L, 3L), failing.ids());
+        assertEquals(Arrays.asList(1L, 2L, 3L), working.ids());
+
+        when(changeRepository.findTop500ByIdGreaterThanOrderById(3L)).thenReturn(Collections.emptyList());
+        poller.poll();
+        assertEquals(Arrays.asList(2L, 3L), failing.ids());
+    }
+
+    @Test
+    void idsBelowTheLastOneAtStartupAreWaitedFor() {
+
+        // the change 4 has not committed yet when the node starts
+        when(changeRepository.findLastId()).thenReturn(5L);
+        when(changeRepository.findIdsBetween(0L, 5L)).thenReturn(Arrays.asList(1L, 2L, 3L, 5L));
+        FlakyListener listener = new FlakyListener(0);
+        ParkingChangePoller poller = poller(listener);
+        poller.init();
+        assertEquals(5L, poller.getLastSeenId());
+
+        when(changeRepository.findTop500ByIdGreaterThanOrderById(anyLong())).thenReturn(Collections.emptyList());
+        when(changeRepository.findAllByIdIn(any())).thenReturn(Collections.singletonList(change(4L, 20L, ChangeType.CREATED)));
+        poller.poll();
+
+        assertEquals(Collections.singletonList(4L), listener.ids());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ParkingChangePoller poller(ParkingChangeListener... listeners) {
+        ObjectProvider<ParkingChangeListener> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(invocation -> Stream.of(listeners));
+        return new ParkingChangePoller(changeRepository, provider, Duration.ofSeconds(30), Duration.ofDays(7));
+    }
+
+    private static ParkingChange change(Long id, Long parkingId, ChangeType type) {
+        ParkingChange change = new ParkingChange(parkingId, type);
+        change.setId(id);
+        return change;
+    }
+
+    private static class FlakyListener implements ParkingChangeListener {
+
+        private final List<ParkingChange> applied = new ArrayList<>();
+        private int failures;
+
+        private FlakyListener(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void onParkingChanges(List<ParkingChange> changes) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("not now");
+            }
+            applied.addAll(changes);
+        }
+
+        private List<Long> ids() {
+            return applied.stream().map(ParkingChange::getId).collect(Collectors.toList());
+        }
+    }
+}
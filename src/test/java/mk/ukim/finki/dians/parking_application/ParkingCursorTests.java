@@ -0,0 +1,57 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.service.ParkingCursor;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParkingCursorTests {
+
+    private static final int PARKINGS = 25;
+    private static final int PAGE_SIZE = 10;
+
+    @Test
+    void pagesAreReadOnlyWhenTheyAreReached() {
+
+        ParkingService parkingService = mock(ParkingService.class);
+        when(parkingService.findPageAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int size = invocation.getArgument(1);
+            List<ParkingSummary> page = new ArrayList<>();
+            for (long id = afterId + 1; id <= Math.min(afterId + size, PARKINGS); id++) {
+                page.add(new ParkingSummary(id, "Parking " + id, "Skopje", "Partizanska", 42.0, 21.4, null, null, null, null));
+            }
+            return page;
+        });
+        AtomicInteger flushes = new AtomicInteger();
+
+        Iterator<ParkingSummary> parkings = new ParkingCursor(parkingService, PAGE_SIZE, flushes::incrementAndGet).iterator();
+
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            assertEquals(id, parkings.next().getId());
+        }
+        verify(parkingService, times(1)).findPageAfter(anyLong(), anyInt());
+        assertEquals(0, flushes.get());
+
+        for (long id = PAGE_SIZE + 1; id <= PARKINGS; id++) {
+            assertEquals(id, parkings.next().getId());
+        }
+        assertFalse(parkings.hasNext());
+        assertEquals(2, flushes.get());
+        verify(parkingService, times(3)).findPageAfter(anyLong(), anyInt());
+    }
+}
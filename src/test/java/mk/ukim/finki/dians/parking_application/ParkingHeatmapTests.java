@@ -0,0 +1,110 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.heatmap.ParkingHeatmap;
+import mk.ukim.finki.dians.parking_application.model.ParkingChange;
+import mk.ukim.finki.dians.parking_application.model.dto.HeatmapTile;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.model.enumeration.ChangeType;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ParkingHeatmapTests {
+
+    // tile 14/9167/6082 covers the centre of Skopje
+    private static final int ZOOM = 14;
+    private static final int X = 9167;
+    private static final int Y = 6082;
+
+    private final ParkingRepository parkingRepository = mock(ParkingRepository.class);
+    private ParkingHeatmap heatmap;
+
+    @BeforeEach
+    void setUp() {
+        when(parkingRepository.findAllSummaries()).thenReturn(Arrays.asList(
+                parking(1L, 41.9960, 21.4310),
+                parking(2L, 41.9961, 21.4311),
+                parking(3L, 41.1172, 20.8016)));
+        heatmap = new ParkingHeatmap(parkingRepository, 0, 15);
+    }
+
+    @Test
+    void everyZoomLevelCountsTheParkings() {
+
+        HeatmapTile world = heatmap.tile(0, 0, 0);
+        assertEquals(3, world.getTotal());
+
+        HeatmapTile centre = heatmap.tile(ZOOM, X, Y);
+        assertEquals(2, centre.getTotal());
+        assertEquals(2, centre.getMax());
+        assertEquals(2, centre.getCells().length);
+
+        assertEquals(0, heatmap.tile(ZOOM, X + 5, Y).getTotal());
+        assertNull(heatmap.tile(16, 0, 0));
+        assertNull(heatmap.tile(2, 4, 0));
+    }
+
+    @Test
+    void changesMoveTheParkingsBetweenTiles() {
+
+        heatmap.load();
+        String etag = heatmap.tile(ZOOM, X, Y).getEtag();
+        when(parkingRepository.findSummariesByIdIn(any())).thenReturn(Collections.singletonList(parking(2L, 41.1173, 20.8017)));
+
+        heatmap.onParkingChanges(Arrays.asList(new ParkingChange(2L, ChangeType.UPDATED), new ParkingChange(2L, ChangeType.UPDATED)));
+
+        HeatmapTile centre = heatmap.tile(ZOOM, X, Y);
+        assertEquals(1, centre.getTotal());
+        assertNotEquals(etag, centre.getEtag());
+        assertEquals(3, heatmap.tile(0, 0, 0).getTotal());
+
+        when(parkingRepository.findSummariesByIdIn(any())).thenReturn(Collections.emptyList());
+        heatmap.onParkingChanges(Collections.singletonList(new ParkingChange(1L, ChangeType.DELETED)));
+
+        assertEquals(0, heatmap.tile(ZOOM, X, Y).getTotal());
+        assertArrayEquals(new int[0], heatmap.tile(ZOOM, X, Y).getCells());
+        assertEquals(2, heatmap.tile(0, 0, 0).getTotal());
+    }
+
+    @Test
+    void binsAreCountedInAnyOrder() {
+
+        // a 10 x 10 grid of parkings inside the centre tile, two in every bin, added in a scrambled order
+        List<ParkingSummary> parkings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int cell = (i * 37) % 100;
+            parkings.add(parking((long) i, 41.9940 + (cell / 10) * 0.0003, 21.4280 + (cell % 10) * 0.0004));
+        }
+        when(parkingRepository.findAllSummaries()).thenReturn(parkings);
+        heatmap = new ParkingHeatmap(parkingRepository, 0, 15);
+
+        HeatmapTile centre = heatmap.tile(ZOOM, X, Y);
+        assertEquals(200, centre.getTotal());
+        int total = 0;
+        for (int i = 0; i < centre.getCells().length; i += 2) {
+            if (i > 0) {
+                assertTrue(centre.getCells()[i] > centre.getCells()[i - 2]);
+            }
+            total += centre.getCells()[i + 1];
+        }
+        assertEquals(200, total);
+    }
+
+    private static ParkingSummary parking(Long id, double latitude, double longitude) {
+        return new ParkingSummary(id, "Parking " + id, "Skopje", "Partizanska", latitude, longitude, null, null, null, null);
+    }
+}
@@ -0,0 +1,70 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.ranking.ParkingRanker;
+import mk.ukim.finki.dians.parking_application.ranking.TopK;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParkingRankerTests {
+
+    private final ParkingRanker ranker = new ParkingRanker(0.5, 0.3, 0.2, 1, 3, 2);
+
+    @Test
+    void topKSelectsTheSameElementsAsAFullSort() {
+
+        Random random = new Random(7);
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            values.add(random.nextInt(1000000));
+        }
+
+        TopK<Integer> topK = new TopK<>(25, Comparator.naturalOrder());
+        values.forEach(topK::offer);
+
+        List<Integer> sorted = new ArrayList<>(values);
+        sorted.sort(Collections.reverseOrder());
+        assertEquals(sorted.subList(0, 25), topK.toList());
+    }
+
+    @Test
+    void nearbyWellRatedParkingsRankFirst() {
+
+        ParkingSummary near = parking(1L, "Near", "Partizanska 1", 41.9981, 21.4254, "3");
+        ParkingSummary nearAndRated = parking(2L, "Rated", "Partizanska 2", 41.9985, 21.4254, "5");
+        ParkingSummary far = parking(3L, "Far", "Partizanska 3", 42.1322, 21.7144, "5");
+
+        List<ParkingSummary> ranked = ranker.rank(Arrays.asList(far, near, nearAndRated), "", "", 41.9981, 21.4254);
+
+        assertEquals(Arrays.asList(2L, 1L), ids(ranked));
+    }
+
+    @Test
+    void exactTextMatchesRankBeforePartialMatches() {
+
+        ParkingSummary partial = parking(1L, "Garage", "Dame Gruev 10", null, null, "4");
+        ParkingSummary prefix = parking(2L, "Garage", "Gruev 5", null, null, "4");
+        ParkingSummary exact = parking(3L, "Garage", "Gruev", null, null, "4");
+
+        List<ParkingSummary> ranked = ranker.rank(Arrays.asList(partial, prefix, exact), "", "gruev", null, null);
+
+        assertEquals(Arrays.asList(3L, 2L), ids(ranked));
+    }
+
+    private static ParkingSummary parking(Long id, String name, String address, Double latitude, Double longitude, String rating) {
+        return new ParkingSummary(id, name, "Skopje", address, latitude, longitude, rating, null, null, null);
+    }
+
+    private static List<Long> ids(List<ParkingSummary> parkings) {
+        return parkings.stream().map(ParkingSummary::getId).collect(Collectors.toList());
+    }
+}
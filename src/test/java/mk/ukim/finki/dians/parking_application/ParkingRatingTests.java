@@ -0,0 +1,140 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.service.ParkingRatingService;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import mk.ukim.finki.dians.parking_application.service.implementations.ParkingChangePoller;
+import mk.ukim.finki.dians.parking_application.web.controller.ParkingController;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ratings are conflated in memory and the aggregates
+ * are maintained incrementally when they are flushed.
+ */
+@SpringBootTest(properties = {"parking.seed.parkings=20", "parking.ratings.flush-interval=3600000",
+        "parking.ratings.prior-mean=3", "parking.ratings.prior-weight=5"})
+@ActiveProfiles("local")
+class ParkingRatingTests {
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private ParkingRatingService parkingRatingService;
+
+    @Autowired
+    private ParkingController parkingController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ParkingChangePoller parkingChangePoller;
+
+    @Test
+    void ratingsAreConflatedAndAggregatedIncrementally() {
+
+        List<ParkingSummary> parkings = parkingService.findAll();
+        Long id = parkings.get(0).getId();
+
+        parkingRatingService.rate(id, "first", 1);
+        parkingRatingService.rate(id, "first", 5);
+        parkingRatingService.rate(id, "second", 4);
+        parkingRatingService.flush();
+
+        assertEquals(2, count("select count(*) from parking_ratings where parking_id = ?", id));
+        Map<String, Object> aggregates = aggregates(id);
+        assertEquals(2L, ((Number) aggregates.get("rating_count")).longValue());
+        assertEquals(9L, ((Number) aggregates.get("rating_sum")).longValue());
+        assertEquals((5 * 3 + 9) / 7.0, ((Number) aggregates.get("rating_score")).doubleValue(), 1e-9);
+
+        // rating again replaces the earlier rating of the user
+        parkingRatingService.rate(id, "second", 2);
+        parkingRatingService.flush();
+
+        aggregates = aggregates(id);
+        assertEquals(2L, ((Number) aggregates.get("rating_count")).longValue());
+        assertEquals(7L, ((Number) aggregates.get("rating_sum")).longValue());
+        assertEquals((5 * 3 + 7) / 7.0, ((Number) aggregates.get("rating_score")).doubleValue(), 1e-9);
+        assertEquals(2, count("select count(*) from parking_changes where parking_id = ? and type = 'UPDATED'", id));
+    }
+
+    @Test
+    void sortByRatingUsesTheUsersScore() {
+
+        List<ParkingSummary> skopje = parkingService.findAllByCityOrAndAddressSorted("Skopje", "", "name");
+        Long best = skopje.get(skopje.size() - 1).getId();
+        for (int i = 0; i < 10; i++) {
+            parkingRatingService.rate(best, "user" + i, 5);
+        }
+        parkingRatingService.flush();
+        // the change log poller which evicts the cached results is mocked here
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        List<ParkingSummary> byRating = parkingService.findAllByCityOrAndAddressSorted("Skopje", "", "rating");
+        assertEquals(best, byRating.get(0).getId());
+    }
+
+    @Test
+    void ratingRedirectsBackOnlyToPagesOfThisSite() {
+
+        Long id = parkingService.findAll().get(1).getId();
+
+        assertEquals("redirect:/parking/all-parkings?page=2", rate(id, "http://localhost/parking/all-parkings?page=2"));
+        assertEquals("redirect:/parking/all-parkings", rate(id, "http://localhost/parking/result"));
+        assertEquals("redirect:/parking/all-parkings", rate(id, "http://evil.example/parking/all-parkings"));
+        assertEquals("redirect:/parking/all-parkings", rate(id, "http://localhost//evil.example/path"));
+        assertEquals("redirect:/parking/all-parkings", rate(id, "http://localhost/parking/all parkings"));
+        assertEquals("redirect:/parking/all-parkings", rate(id, null));
+    }
+
+    @Test
+    void editDoesNotWriteBackTheRatingAggregates() {
+
+        ParkingSummary rated = parkingService.findAll().get(2);
+        long ratingsBefore = count("select coalesce(rating_count, 0) from parkings where id = ?", rated.getId());
+        // the parking is in the second-level cache before it is rated,
+        // the change log poller which would evict it is mocked here
+        parkingService.findById(rated.getId());
+
+        parkingRatingService.rate(rated.getId(), "editor", 4);
+        parkingRatingService.flush();
+        parkingService.edit(rated.getId(), "Edited After Rating", rated.getCity(), rated.getAddress(),
+                rated.getLatitude(), rated.getLongitude(), rated.getRating(), true);
+
+        assertEquals(ratingsBefore + 1, count("select coalesce(rating_count, 0) from parkings where id = ?", rated.getId()));
+        assertEquals("Edited After Rating", parkingService.findById(rated.getId()).get().getName());
+    }
+
+    private String rate(Long id, String referer) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (referer != null) {
+            request.addHeader("Referer", referer);
+        }
+        return parkingController.rateParking(id, 3, () -> "referer-user", request);
+    }
+
+    private long count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+
+    private Map<String, Object> aggregates(Long id) {
+        return jdbcTemplate.queryForMap("select rating_count, rating_sum, rating_score from parkings where id = ?", id);
+    }
+}
@@ -0,0 +1,92 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingChanges;
+import mk.ukim.finki.dians.parking_application.service.ParkingService;
+import mk.ukim.finki.dians.parking_application.service.ParkingSyncService;
+import mk.ukim.finki.dians.parking_application.service.implementations.ParkingChangePoller;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A client syncing from a version receives only the newer changes.
+ */
+@SpringBootTest(properties = "parking.seed.parkings=10")
+@ActiveProfiles("local")
+class ParkingSyncTests {
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private ParkingSyncService parkingSyncService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ParkingChangePoller parkingChangePoller;
+
+    @Test
+    void clientReceivesOnlyTheChangesSinceItsVersion() {
+
+        ParkingChanges snapshot = parkingSyncService.findChangesSince(-1);
+        assertTrue(snapshot.isReset());
+        assertEquals(parkingService.findAll().size(), snapshot.getUpserts().size());
+
+        Parking kept = parkingService.save("Kept", "Skopje", "Partizanska 1", 41.99, 21.42, "5", false).get();
+        Parking removed = parkingService.save("Removed", "Skopje", "Partizanska 2", 41.99, 21.42, "4", false).get();
+        parkingService.edit(kept.getId(), "Kept", "Skopje", "Partizanska 3", 41.99, 21.42, "5", false);
+        parkingService.deleteById(removed.getId());
+
+        ParkingChanges changes = parkingSyncService.findChangesSince(snapshot.getVersion());
+
+        assertFalse(changes.isReset());
+        assertFalse(changes.isMore());
+        assertEquals(snapshot.getVersion() + 4, changes.getVersion());
+        assertEquals(1, changes.getUpserts().size());
+        assertEquals("Partizanska 3", changes.getUpserts().get(0).getAddress());
+        assertEquals(Collections.singletonList(removed.getId()), changes.getDeletes());
+        assertEquals(snapshot.getVersion() + 3, parkingService.findById(kept.getId()).get().getVersion());
+
+        ParkingChanges noChanges = parkingSyncService.findChangesSince(changes.getVersion());
+        assertEquals(changes.getVersion(), noChanges.getVersion());
+        assertTrue(noChanges.getUpserts().isEmpty());
+        assertTrue(noChanges.getDeletes().isEmpty());
+    }
+
+    @Test
+    void changesAfterAYoungGapAreNotSentYet() {
+
+        long lastId = parkingSyncService.findChangesSince(-1).getVersion();
+        Parking parking = parkingService.findAll().stream().findFirst()
+                .flatMap(summary -> parkingService.findById(summary.getId())).get();
+        // the change lastId + 1 is still being committed
+        jdbcTemplate.update("insert into parking_changes (id, parking_id, type, changed_at) values (?, ?, 'UPDATED', ?)",
+                lastId + 2, parking.getId(), Timestamp.valueOf(LocalDateTime.now()));
+        try {
+            ParkingChanges reset = parkingSyncService.findChangesSince(-1);
+            assertTrue(reset.isReset());
+            assertEquals(lastId, reset.getVersion());
+
+            ParkingChanges changes = parkingSyncService.findChangesSince(lastId);
+            assertEquals(lastId, changes.getVersion());
+            assertFalse(changes.isMore());
+            assertTrue(changes.getUpserts().isEmpty());
+        } finally {
+            jdbcTemplate.update("delete from parking_changes where id = ?", lastId + 2);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package mk.ukim.finki.dians.parking_application;
+
+import com.zaxxer.hikari.HikariDataSource;
+import mk.ukim.finki.dians.parking_application.config.ReadWriteRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Routing between two local databases standing for the primary and a replica.
+ */
+class ReadWriteRoutingDataSourceTests {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @AfterEach
+    void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                pool("jdbc:h2:mem:primary"), Arrays.asList(pool("jdbc:h2:mem:replica")), 30000);
+
+        assertEquals("PRIMARY", databaseName(routing, false));
+        assertEquals("REPLICA", databaseName(routing, true));
+        assertEquals(1L, routing.getStatistics().get("replica-1").get("connections"));
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenTheReplicaIsDown() {
+
+        HikariDataSource unavailableReplica = pool("jdbc:h2:tcp://localhost:1/unavailable");
+        unavailableReplica.setInitializationFailTimeout(-1);
+        unavailableReplica.setConnectionTimeout(250);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                pool("jdbc:h2:mem:primary"), Arrays.asList(unavailableReplica), 30000);
+
+        assertEquals("PRIMARY", databaseName(routing, true));
+        assertEquals("PRIMARY", databaseName(routing, true));
+        assertEquals(1L, routing.getStatistics().get("replica-1").get("failures"));
+        assertEquals(2L, routing.getStatistics().get("primary").get("fallbacks"));
+    }
+
+    private static String databaseName(ReadWriteRoutingDataSource routing, boolean readOnly) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> new JdbcTemplate(dataSource).queryForObject("select database()", String.class));
+    }
+
+    private HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        pools.add(pool);
+        return pool;
+    }
+}
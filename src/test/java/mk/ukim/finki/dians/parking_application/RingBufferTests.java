@@ -0,0 +1,94 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.analytics.RingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTests {
+
+    @Test
+    void fullBufferDropsAndFreedSlotsAreReused() {
+
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> taken = new ArrayList<>();
+        assertEquals(2, buffer.drain(taken::add, 2));
+        assertTrue(buffer.offer(5));
+        assertTrue(buffer.offer(6));
+        assertFalse(buffer.offer(7));
+        assertEquals(4, buffer.drain(taken::add, Integer.MAX_VALUE));
+        assertEquals(0, buffer.drain(taken::add, Integer.MAX_VALUE));
+
+        List<Integer> expected = new ArrayList<>();
+        expected.add(0);
+        expected.add(1);
+        expected.add(2);
+        expected.add(3);
+        expected.add(5);
+        expected.add(6);
+        assertEquals(expected, taken);
+    }
+
+    @Test
+    void elementsOfConcurrentProducersAreTakenOnceAndInTheirOrder() throws Exception {
+
+        int producers = 4;
+        int perProducer = 200_000;
+        RingBuffer<long[]> buffer = new RingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                long id = producer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long sequence = 0; sequence < perProducer; sequence++) {
+                        while (!buffer.offer(new long[]{id, sequence})) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            long[] next = new long[producers];
+            long taken = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (taken < (long) producers * perProducer && System.nanoTime() < deadline) {
+                taken += buffer.drain(element -> {
+                    assertEquals(next[(int) element[0]], element[1]);
+                    next[(int) element[0]]++;
+                }, 1000);
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals((long) producers * perProducer, taken);
+            for (long count : next) {
+                assertEquals(perProducer, count);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
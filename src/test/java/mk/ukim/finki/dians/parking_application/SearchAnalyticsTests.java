@@ -0,0 +1,68 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.analytics.SearchAnalytics;
+import mk.ukim.finki.dians.parking_application.model.dto.TopSearch;
+import mk.ukim.finki.dians.parking_application.model.enumeration.SearchOutcome;
+import mk.ukim.finki.dians.parking_application.service.SearchAnalyticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The searches are counted per window in the background,
+ * written in batches and reported the most frequent first.
+ */
+@SpringBootTest(properties = {"parking.seed.parkings=10", "parking.analytics.window=100ms",
+        "parking.analytics.flush-interval=3600000"})
+@ActiveProfiles("local")
+class SearchAnalyticsTests {
+
+    @Autowired
+    private SearchAnalyticsService searchAnalyticsService;
+
+    @Autowired
+    private SearchAnalytics searchAnalytics;
+
+    @Test
+    void searchesAreCountedAndReported() throws InterruptedException {
+
+        for (int i = 0; i < 5; i++) {
+            searchAnalyticsService.recordSearch("Analytics City", "Missing Street", false);
+        }
+        for (int i = 0; i < 3; i++) {
+            searchAnalyticsService.recordSearch(" Analytics City ", "Other Street", false);
+        }
+        searchAnalyticsService.recordSearch("Analytics City", "Found Street", true);
+
+        List<TopSearch> notFound = awaitTopSearches(SearchOutcome.NOT_FOUND, 8);
+        assertEquals(2, notFound.size());
+        assertEquals(new TopSearch("Analytics City", "Missing Street", SearchOutcome.NOT_FOUND, 5L), notFound.get(0));
+        assertEquals(new TopSearch("Analytics City", "Other Street", SearchOutcome.NOT_FOUND, 3L), notFound.get(1));
+
+        List<TopSearch> found = searchAnalyticsService.findTopSearches(SearchOutcome.FOUND, Duration.ofHours(1), 10);
+        assertEquals(1, found.size());
+        assertEquals(1L, found.get(0).getSearches());
+        assertEquals(0, searchAnalytics.getDropped());
+    }
+
+    /**
+     * Flushes until the windows with the expected number of searches are closed and written
+     */
+    private List<TopSearch> awaitTopSearches(SearchOutcome outcome, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<TopSearch> searches;
+        do {
+            Thread.sleep(50);
+            searchAnalytics.flush();
+            searches = searchAnalyticsService.findTopSearches(outcome, Duration.ofHours(1), 10);
+        } while (searches.stream().mapToLong(TopSearch::getSearches).sum() < expected
+                && System.currentTimeMillis() < deadline);
+        return searches;
+    }
+}
@@ -0,0 +1,81 @@
+package mk.ukim.finki.dians.parking_application;
+
+import mk.ukim.finki.dians.parking_application.cache.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void concurrentIdenticalCallsShareOneComputation() throws Exception {
+
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Object>> calls = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                calls.add(executor.submit(() -> singleFlight.execute("skopje", () -> {
+                    computations.incrementAndGet();
+                    await(release);
+                    return result;
+                })));
+            }
+
+            // let every caller join the computation before it finishes
+            long deadline = System.currentTimeMillis() + 5000;
+            while (singleFlight.getCoalesced() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<Object> call : calls) {
+                assertSame(result, call.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, computations.get());
+        assertEquals(1, singleFlight.getExecutions());
+        assertEquals(CALLERS - 1, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void nothingIsKeptAfterTheComputationFinishes() {
+
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("bitola", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(1, singleFlight.execute("bitola", () -> 1));
+        assertEquals(2, singleFlight.execute("bitola", () -> 2));
+        assertEquals(3, singleFlight.getExecutions());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package mk.ukim.finki.dians.parking_application.benchmark;
+
+import mk.ukim.finki.dians.parking_application.model.Parking;
+import mk.ukim.finki.dians.parking_application.model.dto.ParkingSummary;
+import mk.ukim.finki.dians.parking_application.repository.ParkingRepository;
+import mk.ukim.finki.dians.parking_application.service.implementations.ParkingChangePoller;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares loading the search results as managed entities in a read-write
+ * transaction (how the search pages used to load them) with loading
+ * ParkingSummary projections in a read-only transaction.
+ * Both queries bypass the query cache, so only the materialization is measured.
+ * Excluded from the default build, run with:
+ * <pre>
+ * mvn test -Pbenchmark [-Dbenchmark.iterations=200 -Dbenchmark.parkings=20000]
+ * </pre>
+ */
+@SpringBootTest(properties = "parking.seed.parkings=${benchmark.parkings:5000}")
+@ActiveProfiles("local")
+class ParkingProjectionBenchmark {
+
+    private static final String CITY = "Skopje";
+    private static final String WHERE = " where upper(p.city) like upper(:city) order by p.name";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private ParkingChangePoller parkingChangePoller;
+
+    @Test
+    void projectionsAllocateLessThanEntities() {
+
+        int iterations = Integer.getInteger("benchmark.iterations", 100);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Supplier<Integer> entities = () -> readWrite.execute(status -> entityManager
+                .createQuery("select p from Parking p" + WHERE, Parking.class)
+                .setParameter("city", "%" + CITY + "%")
+                .getResultList().size());
+        Supplier<Integer> summaries = () -> readOnly.execute(status -> entityManager
+                .createQuery(ParkingRepository.SUMMARY + WHERE, ParkingSummary.class)
+                .setParameter("city", "%" + CITY + "%")
+                .getResultList().size());
+
+        // warm up the JIT and the connection pool before measuring
+        measure(entities, iterations / 4);
+        measure(summaries, iterations / 4);
+
+        Measurement entityLoading = measure(entities, iterations);
+        Measurement projectionLoading = measure(summaries, iterations);
+
+        System.out.printf("%-12s %8s %14s %14s%n", "loading", "rows", "bytes/request", "micros/request");
+        System.out.printf("%-12s %8d %14d %14d%n", "entities", entityLoading.rows, entityLoading.bytesPerRequest, entityLoading.microsPerRequest);
+        System.out.printf("%-12s %8d %14d %14d%n", "projections", projectionLoading.rows, projectionLoading.bytesPerRequest, projectionLoading.microsPerRequest);
+
+        assertTrue(entityLoading.rows > 0);
+        assertEquals(entityLoading.rows, projectionLoading.rows);
+        assertTrue(projectionLoading.bytesPerRequest < entityLoading.bytesPerRequest,
+                "projections allocated more than entities");
+    }
+
+    private static Measurement measure(Supplier<Integer> request, int iterations) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        int rows = 0;
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long nanosBefore = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            rows = request.get();
+        }
+        long nanos = System.nanoTime() - nanosBefore;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        int count = Math.max(iterations, 1);
+        return new Measurement(rows, bytes / count, nanos / count / 1000);
+    }
+
+    private static class Measurement {
+        private final int rows;
+        private final long bytesPerRequest;
+        private final long microsPerRequest;
+
+        private Measurement(int rows, long bytesPerRequest, long microsPerRequest) {
+            this.rows = rows;
+            this.bytesPerRequest = bytesPerRequest;
+            this.microsPerRequest = microsPerRequest;
+        }
+    }
+}
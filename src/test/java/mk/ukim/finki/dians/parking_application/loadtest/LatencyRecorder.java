@@ -0,0 +1,72 @@
+package mk.ukim.finki.dians.parking_application.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe collector of request latencies (in microseconds)
+ * for one endpoint of the load test.
+ * Percentiles are calculated from the exact samples once the run is over.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int size;
+    private long errors;
+
+    /**
+     * Records one completed request
+     * @param micros latency measured from the intended start of the request
+     * @param success whether the response had the expected status
+     */
+    public synchronized void record(long micros, boolean success) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = micros;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    public synchronized long count() {
+        return size;
+    }
+
+    public synchronized long errors() {
+        return errors;
+    }
+
+    /**
+     * Nearest-rank percentile of the recorded latencies
+     * @param percentile value between 0 and 100
+     * @return latency in microseconds, 0 if nothing was recorded
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return sorted[Math.max(0, Math.min(size - 1, rank - 1))];
+    }
+
+    /**
+     * Merges the samples of another recorder into this one
+     * @param other recorder whose samples are copied
+     */
+    public void addAll(LatencyRecorder other) {
+        long[] otherSamples;
+        long otherErrors;
+        synchronized (other) {
+            otherSamples = Arrays.copyOf(other.samples, other.size);
+            otherErrors = other.errors;
+        }
+        synchronized (this) {
+            for (long sample : otherSamples) {
+                record(sample, true);
+            }
+            errors += otherErrors;
+        }
+    }
+}
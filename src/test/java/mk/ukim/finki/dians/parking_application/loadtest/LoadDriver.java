@@ -0,0 +1,313 @@
+package mk.ukim.finki.dians.parking_application.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-loop HTTP load driver for the parking application.
+ * Requests are started at a fixed target rate regardless of how fast the
+ * server answers, and every latency is measured from the moment the request
+ * was supposed to start, so queueing in an overloaded server shows up in
+ * the percentiles instead of silently lowering the request rate.
+ * <p>
+ * The request mix covers /login, /parking/result, /parking/current-location
+ * and /parking/all-parkings. Every worker thread logs in once and reuses its
+ * session cookie for the search requests.
+ * <p>
+ * Standalone usage against a running server (e.g. one started with the "local" profile):
+ * <pre>
+ * java -cp target/test-classes mk.ukim.finki.dians.parking_application.loadtest.LoadDriver \
+ *      http://localhost:9090 user password 200 60
+ * </pre>
+ */
+public class LoadDriver {
+
+    /**
+     * The exercised endpoints and their share of the request mix
+     */
+    public enum Endpoint {
+        LOGIN(5),
+        SEARCH(45),
+        CURRENT_LOCATION(40),
+        ALL_PARKINGS(10);
+
+        private final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final String[] CITIES = {"Skopje", "Bitola", "Kumanovo", "Prilep", "Tetovo", "Ohrid"};
+    private static final double[][] CITY_CENTERS = {{41.9981, 21.4254}, {41.0297, 21.3292}, {42.1322, 21.7144},
+            {41.3441, 21.5528}, {42.0069, 20.9715}, {41.1231, 20.8016}};
+    private static final String[] STREETS = {"Partizanska", "Ilindenska", "Makedonija", "Goce Delchev",
+            "Jane Sandanski", "Kliment Ohridski", "Dame Gruev"};
+
+    private final String baseUrl;
+    private final String username;
+    private final String password;
+    private final int requestsPerSecond;
+    private final int durationSeconds;
+    private final int threads;
+    private final ThreadLocal<String> sessionCookie = new ThreadLocal<>();
+
+    public LoadDriver(String baseUrl, String username, String password,
+                      int requestsPerSecond, int durationSeconds, int threads) {
+        this.baseUrl = baseUrl;
+        this.username = username;
+        this.password = password;
+        this.requestsPerSecond = requestsPerSecond;
+        this.durationSeconds = durationSeconds;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadDriver driver = new LoadDriver(
+                args.length > 0 ? args[0] : "http://localhost:9090",
+                args.length > 1 ? args[1] : "user",
+                args.length > 2 ? args[2] : "password",
+                args.length > 3 ? Integer.parseInt(args[3]) : 100,
+                args.length > 4 ? Integer.parseInt(args[4]) : 30,
+                args.length > 5 ? Integer.parseInt(args[5]) : 64);
+        System.out.println(driver.run());
+    }
+
+    /**
+     * Runs the load for the configured duration and waits
+     * for all of the started requests to finish
+     * @return the collected latencies per endpoint
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public Result run() throws InterruptedException {
+
+        Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Random random = new Random(7);
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long started = System.nanoTime();
+
+        scheduler.scheduleAtFixedRate(() -> {
+            long intendedStart = System.nanoTime();
+            Endpoint endpoint = pickEndpoint(random);
+            workers.execute(() -> {
+                boolean success = execute(endpoint);
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+                recorders.get(endpoint).record(micros, success);
+            });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        scheduler.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+
+        return new Result(recorders, (System.nanoTime() - started) / 1e9);
+    }
+
+    private static Endpoint pickEndpoint(Random random) {
+        int total = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            total += endpoint.weight;
+        }
+        int pick = random.nextInt(total);
+        for (Endpoint endpoint : Endpoint.values()) {
+            pick -= endpoint.weight;
+            if (pick < 0) {
+                return endpoint;
+            }
+        }
+        return Endpoint.SEARCH;
+    }
+
+    /**
+     * Sends one request of the given kind
+     * @param endpoint the kind of request
+     * @return whether the server answered with the expected status
+     */
+    private boolean execute(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            switch (endpoint) {
+                case LOGIN:
+                    return login() != null;
+                case SEARCH:
+                    String form = "city=" + encode(random.nextInt(4) > 0 ? CITIES[random.nextInt(CITIES.length)] : "")
+                            + "&address=" + encode(random.nextBoolean() ? STREETS[random.nextInt(STREETS.length)] : "")
+                            + "&sort=" + (random.nextBoolean() ? "name" : "rating");
+                    if (form.startsWith("city=&address=&")) {
+                        form = "city=Skopje" + form.substring(5);
+                    }
+                    return send("POST", "/parking/result", form, session()) == 200;
+                case CURRENT_LOCATION:
+                    double[] center = CITY_CENTERS[random.nextInt(CITY_CENTERS.length)];
+                    String coordinates = String.format(Locale.ROOT, "%.6f %.6f",
+                            center[0] + (random.nextDouble() - 0.5) * 0.04,
+                            center[1] + (random.nextDouble() - 0.5) * 0.05);
+                    return send("GET", "/parking/current-location?coordinates=" + encode(coordinates), null, session()) == 200;
+                default:
+                    return send("GET", "/parking/all-parkings", null, session()) == 200;
+            }
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    private String session() throws IOException {
+        String cookie = sessionCookie.get();
+        if (cookie == null) {
+            cookie = login();
+            sessionCookie.set(cookie);
+        }
+        return cookie;
+    }
+
+    /**
+     * Logs in with the form login
+     * @return the cookies set by a successful login, null otherwise
+     */
+    private String login() throws IOException {
+        HttpURLConnection connection = open("POST", "/login", null);
+        write(connection, "username=" + encode(username) + "&password=" + encode(password));
+        int status = connection.getResponseCode();
+        drain(connection);
+        String location = connection.getHeaderField("Location");
+        if (status != 302 || location == null || location.contains("/login")) {
+            return null;
+        }
+        StringBuilder cookies = new StringBuilder();
+        List<String> setCookies = connection.getHeaderFields().get("Set-Cookie");
+        if (setCookies != null) {
+            for (String setCookie : setCookies) {
+                if (cookies.length() > 0) {
+                    cookies.append("; ");
+                }
+                cookies.append(setCookie, 0, setCookie.contains(";") ? setCookie.indexOf(';') : setCookie.length());
+            }
+        }
+        return cookies.toString();
+    }
+
+    private int send(String method, String path, String form, String cookie) throws IOException {
+        HttpURLConnection connection = open(method, path, cookie);
+        if (form != null) {
+            write(connection, form);
+        }
+        int status = connection.getResponseCode();
+        drain(connection);
+        return status;
+    }
+
+    private HttpURLConnection open(String method, String path, String cookie) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        if (cookie != null) {
+            connection.setRequestProperty("Cookie", cookie);
+        }
+        return connection;
+    }
+
+    private static void write(HttpURLConnection connection, String form) throws IOException {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(form.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads the whole body so the keep-alive connection can be reused
+     */
+    private static void drain(HttpURLConnection connection) throws IOException {
+        InputStream input = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (input == null) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream stream = input) {
+            while (stream.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Latencies and throughput collected in one run
+     */
+    public static class Result {
+
+        private final Map<Endpoint, LatencyRecorder> recorders;
+        private final double elapsedSeconds;
+
+        Result(Map<Endpoint, LatencyRecorder> recorders, double elapsedSeconds) {
+            this.recorders = recorders;
+            this.elapsedSeconds = elapsedSeconds;
+        }
+
+        public LatencyRecorder get(Endpoint endpoint) {
+            return recorders.get(endpoint);
+        }
+
+        public LatencyRecorder total() {
+            LatencyRecorder total = new LatencyRecorder();
+            for (LatencyRecorder recorder : recorders.values()) {
+                total.addAll(recorder);
+            }
+            return total;
+        }
+
+        public double throughput() {
+            return total().count() / elapsedSeconds;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                    "%-18s %8s %7s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (Map.Entry<Endpoint, LatencyRecorder> entry : recorders.entrySet()) {
+                appendRow(report, entry.getKey().name(), entry.getValue());
+            }
+            appendRow(report, "TOTAL", total());
+            return report.toString();
+        }
+
+        private void appendRow(StringBuilder report, String name, LatencyRecorder recorder) {
+            report.append(String.format(Locale.ROOT, "%-18s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, recorder.count(), recorder.errors(), recorder.count() / elapsedSeconds,
+                    recorder.percentile(50) / 1000.0, recorder.percentile(95) / 1000.0,
+                    recorder.percentile(99) / 1000.0, recorder.percentile(100) / 1000.0));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package mk.ukim.finki.dians.parking_application.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test against the application running on the embedded
+ * database of the "local" profile. Excluded from the default build, run with:
+ * <pre>
+ * mvn test -Pload-test -Dloadtest.rps=200 -Dloadtest.durationSeconds=30 -Dparking.seed.parkings=20000
+ * </pre>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("local")
+class ParkingLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void searchEndpointsUnderLoad() throws InterruptedException {
+
+        LoadDriver driver = new LoadDriver("http://localhost:" + port, "user", "password",
+                Integer.getInteger("loadtest.rps", 100),
+                Integer.getInteger("loadtest.durationSeconds", 20),
+                Integer.getInteger("loadtest.threads", 64));
+
+        // warm up the JIT and the connection pool before measuring
+        new LoadDriver("http://localhost:" + port, "user", "password", 50, 5, 16).run();
+        LoadDriver.Result result = driver.run();
+
+        System.out.println(result);
+        assertTrue(result.total().count() > 0);
+        assertTrue(result.total().errors() < result.total().count() / 100 + 1, "more than 1% of the requests failed");
+    }
+}